@@ -0,0 +1,69 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.simulation.RandomPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed, seeded board states and pieces shared by the benchmarks, so every run measures exactly the same work.
+ *
+ * @author Jesse Hardy
+ */
+final class BoardStates {
+
+    /**
+     * Width and height of the standard board
+     */
+    static final int SIZE = 5;
+
+    /**
+     * Seed used to build every board state
+     */
+    static final long SEED = 1206;
+
+    private BoardStates() {
+    }
+
+    /**
+     * Build a partly filled board by letting a seeded random player place a number of pieces
+     *
+     * @param seed the seed for the game and the player
+     * @param pieces the number of pieces to place
+     * @return the grid of the game after those pieces
+     */
+    static Grid midGame(long seed, int pieces) {
+        var engine = new GameEngine(SIZE, SIZE, seed);
+        var policy = new RandomPolicy(seed);
+        engine.start();
+        int placed = 0;
+        while(placed < pieces && !engine.isOver()) {
+            var move = policy.choose(engine);
+            if(move != null && move.applyTo(engine)) {
+                placed++;
+            } else {
+                engine.tick();
+            }
+        }
+        return engine.getGrid();
+    }
+
+    /**
+     * Get every distinct orientation of every piece
+     *
+     * @return all orientations, in piece then rotation order
+     */
+    static GamePiece[] allOrientations() {
+        List<GamePiece> orientations = new ArrayList<>();
+        for(int piece = 0; piece < GamePiece.PIECES; piece++) {
+            var gamePiece = GamePiece.createPiece(piece);
+            for(int rotation = 0; rotation < gamePiece.getRotations(); rotation++) {
+                orientations.add(gamePiece.rotated(rotation));
+            }
+        }
+        return orientations.toArray(new GamePiece[0]);
+    }
+}
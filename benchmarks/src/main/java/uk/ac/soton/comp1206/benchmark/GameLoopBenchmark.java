@@ -0,0 +1,62 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.simulation.RandomPolicy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of a whole game played headlessly by a random player, covering every part of the model together.
+ * Each call plays one of a fixed set of seeded games, so the work is the same on every run.
+ *
+ * @author Jesse Hardy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class GameLoopBenchmark {
+
+    /**
+     * Number of different seeded games played in turn, a power of two
+     */
+    private static final int GAMES = 64;
+
+    /**
+     * The next game to play
+     */
+    private int nextGame;
+
+    /**
+     * Play a seeded game to the end with a seeded random player
+     *
+     * @return the final score
+     */
+    @Benchmark
+    public int randomGame() {
+        long seed = BoardStates.SEED + nextGame;
+        nextGame = (nextGame + 1) & (GAMES - 1);
+
+        var engine = new GameEngine(BoardStates.SIZE, BoardStates.SIZE, seed);
+        var policy = new RandomPolicy(seed);
+        engine.start();
+        while(!engine.isOver()) {
+            var move = policy.choose(engine);
+            if(move == null || !move.applyTo(engine)) {
+                engine.tick();
+            }
+        }
+        return engine.getScore();
+    }
+}
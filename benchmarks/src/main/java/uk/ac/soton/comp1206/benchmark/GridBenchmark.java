@@ -0,0 +1,169 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the Grid operations run for every move: checking placements, playing a piece and the line clearing
+ * done after each piece by GameEngine.
+ *
+ * @author Jesse Hardy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GridBenchmark {
+
+    /**
+     * A fixed partly filled board for checking placements against
+     */
+    private Grid midGame;
+
+    /**
+     * An empty board to play pieces on
+     */
+    private Grid empty;
+
+    /**
+     * A board used for line clearing
+     */
+    private Grid lines;
+
+    /**
+     * Every orientation of every piece
+     */
+    private GamePiece[] orientations;
+
+    /**
+     * Placements which are legal on the empty board, each with the mask of cells it fills
+     */
+    private Move[] moves;
+
+    /**
+     * Mask of the full lines found on the lines board
+     */
+    private long[] lineMask;
+
+    /**
+     * The next orientation to use
+     */
+    private int nextOrientation;
+
+    /**
+     * The next move to use
+     */
+    private int nextMove;
+
+    /**
+     * A legal placement on the empty board and the cells it fills
+     *
+     * @param piece the piece
+     * @param x the centre column
+     * @param y the centre row
+     * @param mask the cells filled by the piece
+     */
+    private record Move(GamePiece piece, int x, int y, long[] mask) {
+    }
+
+    /**
+     * Build the fixed boards and placements
+     */
+    @Setup
+    public void setup() {
+        midGame = BoardStates.midGame(BoardStates.SEED, 6);
+        empty = new Grid(BoardStates.SIZE, BoardStates.SIZE);
+        lines = new Grid(BoardStates.SIZE, BoardStates.SIZE);
+        orientations = BoardStates.allOrientations();
+        lineMask = lines.createMask();
+
+        List<Move> legal = new ArrayList<>();
+        for(GamePiece piece : orientations) {
+            for(int y = 0; y < empty.getRows(); y++) {
+                for(int x = 0; x < empty.getCols(); x++) {
+                    if(!empty.canPlayPiece(piece, x, y)) continue;
+                    long[] mask = empty.createMask();
+                    for(int block = 0; block < piece.getBlockCount(); block++) {
+                        int cell = (y + piece.getBlockY(block)) * empty.getCols() + x + piece.getBlockX(block);
+                        mask[cell >>> 6] |= 1L << cell;
+                    }
+                    legal.add(new Move(piece, x, y, mask));
+                }
+            }
+        }
+        moves = legal.toArray(new Move[0]);
+    }
+
+    /**
+     * Check every position on a partly filled board for one piece orientation, as a player looking for a move does
+     *
+     * @return the number of legal positions
+     */
+    @Benchmark
+    public int canPlayPiece() {
+        var piece = orientations[nextOrientation];
+        nextOrientation = (nextOrientation + 1) % orientations.length;
+        int legal = 0;
+        for(int y = 0; y < midGame.getRows(); y++) {
+            for(int x = 0; x < midGame.getCols(); x++) {
+                if(midGame.canPlayPiece(piece, x, y)) legal++;
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Play a piece on the empty board, then clear its cells again so the board is the same for the next call
+     *
+     * @return the number of cells cleared
+     */
+    @Benchmark
+    public int playPiece() {
+        var move = moves[nextMove];
+        nextMove = (nextMove + 1) % moves.length;
+        empty.playPiece(move.piece, move.x, move.y);
+        return empty.clearCells(move.mask);
+    }
+
+    /**
+     * Fill a row and a column, then find and clear them, as GameEngine does after every piece
+     *
+     * @return the number of lines cleared
+     */
+    @Benchmark
+    public int clearLines() {
+        for(int i = 0; i < BoardStates.SIZE; i++) {
+            lines.set(i, 2, 3);
+            lines.set(2, i, 3);
+        }
+        int found = lines.findFullLines(lineMask);
+        lines.clearCells(lineMask);
+        return found;
+    }
+
+    /**
+     * Look for full lines on a partly filled board where there are none, the common case after a piece
+     *
+     * @return the number of full lines
+     */
+    @Benchmark
+    public int findNoLines() {
+        return midGame.findFullLines(lineMask);
+    }
+}
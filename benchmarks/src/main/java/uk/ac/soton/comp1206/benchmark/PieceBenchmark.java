@@ -0,0 +1,107 @@
+package uk.ac.soton.comp1206.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.soton.comp1206.game.GamePiece;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of creating and rotating pieces, which happens on every move and many times per move when searching.
+ *
+ * @author Jesse Hardy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PieceBenchmark {
+
+    /**
+     * Number of pre-generated piece ids and rotations, a power of two
+     */
+    private static final int SEQUENCE = 1024;
+
+    /**
+     * A fixed sequence of piece ids to create
+     */
+    private final int[] ids = new int[SEQUENCE];
+
+    /**
+     * A fixed sequence of orientations to rotate
+     */
+    private final int[] pieces = new int[SEQUENCE];
+
+    /**
+     * A fixed sequence of rotations to apply
+     */
+    private final int[] rotations = new int[SEQUENCE];
+
+    /**
+     * Every orientation of every piece
+     */
+    private GamePiece[] orientations;
+
+    /**
+     * Position in the sequences
+     */
+    private int next;
+
+    /**
+     * Generate the fixed sequences
+     */
+    @Setup
+    public void setup() {
+        orientations = BoardStates.allOrientations();
+        var random = new SplittableRandom(BoardStates.SEED);
+        for(int i = 0; i < SEQUENCE; i++) {
+            ids[i] = random.nextInt(GamePiece.PIECES);
+            pieces[i] = random.nextInt(orientations.length);
+            rotations[i] = random.nextInt(1, 4);
+        }
+    }
+
+    /**
+     * Create a piece from its id
+     *
+     * @return the piece
+     */
+    @Benchmark
+    public GamePiece createPiece() {
+        next = (next + 1) & (SEQUENCE - 1);
+        return GamePiece.createPiece(ids[next]);
+    }
+
+    /**
+     * Rotate a piece once clockwise
+     *
+     * @return the rotated piece
+     */
+    @Benchmark
+    public GamePiece rotate() {
+        next = (next + 1) & (SEQUENCE - 1);
+        return orientations[pieces[next]].rotated();
+    }
+
+    /**
+     * Rotate a piece by one to three turns
+     *
+     * @return the rotated piece
+     */
+    @Benchmark
+    public GamePiece rotateMany() {
+        next = (next + 1) & (SEQUENCE - 1);
+        return orientations[pieces[next]].rotated(rotations[next]);
+    }
+}
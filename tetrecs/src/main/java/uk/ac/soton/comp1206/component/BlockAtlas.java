@@ -0,0 +1,258 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A BlockAtlas holds every look a GameBlock can have, for one block size, pre-rendered into a single image.
+ *
+ * Drawing a block is then one image copy from the atlas rather than a series of fills, strokes and effects. There is
+ * one tile for each colour in each of the normal, hovered and centre-dot styles, plus the empty tile. Atlases are
+ * rendered the first time a block of their size is painted, and shared by every block of that size.
+ *
+ * Must only be used on the JavaFX thread.
+ *
+ * @author Jesse Hardy
+ */
+public class BlockAtlas {
+
+    /**
+     * Creating an instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(BlockAtlas.class);
+
+    /**
+     * The different looks of a block
+     */
+    public enum Style {
+        /**
+         * An empty cell
+         */
+        EMPTY,
+        /**
+         * A coloured block
+         */
+        NORMAL,
+        /**
+         * A block under the aim
+         */
+        HOVER,
+        /**
+         * A coloured block with a dot in the middle, for the centre of the current piece
+         */
+        DOT
+    }
+
+    /**
+     * The atlases rendered so far, by block size
+     */
+    private static final Map<String, BlockAtlas> ATLASES = new HashMap<>();
+
+    /**
+     * The pre-rendered tiles, one row per style and one column per colour
+     */
+    private final WritableImage image;
+
+    /**
+     * The width of a block
+     */
+    private final double width;
+
+    /**
+     * The height of a block
+     */
+    private final double height;
+
+    /**
+     * The distance between the tiles in the image, a whole number of pixels so tiles don't blur into each other
+     */
+    private final double pitchX;
+
+    /**
+     * The vertical distance between the tiles in the image
+     */
+    private final double pitchY;
+
+    /**
+     * Get the atlas for a block size, rendering it if needed
+     *
+     * @param width the width of a block
+     * @param height the height of a block
+     * @return the atlas
+     */
+    public static BlockAtlas forSize(double width, double height) {
+        return ATLASES.computeIfAbsent(width + "x" + height, key -> new BlockAtlas(width, height));
+    }
+
+    /**
+     * Render a new atlas
+     *
+     * @param width the width of a block
+     * @param height the height of a block
+     */
+    private BlockAtlas(double width, double height) {
+        this.width = width;
+        this.height = height;
+        this.pitchX = Math.ceil(width) + 1;
+        this.pitchY = Math.ceil(height) + 1;
+
+        var colours = GameBlock.COLOURS.length;
+        var styles = Style.values();
+        var canvas = new Canvas(pitchX * colours, pitchY * styles.length);
+        var gc = canvas.getGraphicsContext2D();
+
+        var shadow = new DropShadow();
+        shadow.setColor(Color.rgb(0, 0, 0, 0.5));
+        shadow.setOffsetX(5);
+        shadow.setOffsetY(5);
+        shadow.setRadius(5);
+
+        for(var style : styles) {
+            for(var value = 0; value < colours; value++) {
+                //The empty style only needs one tile
+                if(style == Style.EMPTY && value > 0) break;
+
+                double left = value * pitchX;
+                double top = style.ordinal() * pitchY;
+                gc.save();
+                gc.beginPath();
+                gc.rect(left, top, width, height);
+                gc.clip();
+                var colour = GameBlock.COLOURS[value];
+                switch (style) {
+                    case EMPTY -> paintEmpty(gc, left, top);
+                    case NORMAL -> paintColor(gc, left, top, colour, shadow);
+                    case HOVER -> paintForHover(gc, left, top, colour, shadow);
+                    case DOT -> paintWithCircle(gc, left, top, colour, shadow);
+                }
+                gc.restore();
+            }
+        }
+
+        var parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        image = canvas.snapshot(parameters, null);
+        logger.info("Rendered block atlas for {} x {} blocks", width, height);
+    }
+
+    /**
+     * Draw a block onto a canvas by copying its tile
+     *
+     * @param gc the graphics context to draw with
+     * @param style the look of the block
+     * @param value the colour of the block
+     * @param left the x position of the block on the canvas
+     * @param top the y position of the block on the canvas
+     */
+    public void draw(GraphicsContext gc, Style style, int value, double left, double top) {
+        int column = style == Style.EMPTY ? 0 : value;
+        gc.clearRect(left, top, width, height);
+        gc.drawImage(image, column * pitchX, style.ordinal() * pitchY, width, height, left, top, width, height);
+    }
+
+    /**
+     * Render the empty tile
+     *
+     * @param gc the graphics context to paint with
+     * @param left the x position of the tile
+     * @param top the y position of the tile
+     */
+    private void paintEmpty(GraphicsContext gc, double left, double top) {
+        gc.setGlobalAlpha(0.6);
+        //Fill
+        gc.setFill(Color.BLACK);
+        gc.fillRect(left, top, width, height);
+
+        //Border
+        gc.setStroke(Color.GHOSTWHITE);
+        gc.setLineWidth(2);
+        gc.strokeRect(left, top, width, height);
+    }
+
+    /**
+     * Render the shaded square shared by every coloured tile
+     *
+     * @param gc the graphics context to paint with
+     * @param left the x position of the tile
+     * @param top the y position of the tile
+     * @param colour the colour of the block
+     */
+    private void paintSquare(GraphicsContext gc, double left, double top, Color colour) {
+        // Colour fill
+        gc.setFill(colour);
+        gc.fillRect(left, top, width, height);
+
+        // Darker triangle over the top right half
+        double[] xPoints = {left, left + width, left + width};
+        double[] yPoints = {top, top, top + height};
+        gc.setFill(colour.deriveColor(0, 1, 0.8, 1));
+        gc.fillPolygon(xPoints, yPoints, 3);
+    }
+
+    /**
+     * Render a coloured tile
+     *
+     * @param gc the graphics context to paint with
+     * @param left the x position of the tile
+     * @param top the y position of the tile
+     * @param colour the colour of the block
+     * @param shadow the shadow for the border
+     */
+    private void paintColor(GraphicsContext gc, double left, double top, Color colour, DropShadow shadow) {
+        paintSquare(gc, left, top, colour);
+
+        // Border with a shadow
+        gc.setLineWidth(2);
+        gc.setEffect(shadow);
+        gc.setStroke(Color.WHITE);
+        gc.strokeRect(left, top, width, height);
+    }
+
+    /**
+     * Render a hovered tile, which has a thick black border and a grey overlay
+     *
+     * @param gc the graphics context to paint with
+     * @param left the x position of the tile
+     * @param top the y position of the tile
+     * @param colour the colour of the block
+     * @param shadow the shadow for the border
+     */
+    private void paintForHover(GraphicsContext gc, double left, double top, Color colour, DropShadow shadow) {
+        paintSquare(gc, left, top, colour);
+
+        // Border with a shadow
+        gc.setEffect(shadow);
+        gc.setStroke(Color.BLACK);
+        gc.setLineWidth(5);
+        gc.strokeRect(left, top, width, height);
+
+        // Light grey highlight overlay
+        gc.setFill(Color.rgb(192, 192, 192, 0.5));
+        gc.fillRect(left, top, width, height);
+    }
+
+    /**
+     * Render a coloured tile with a circle in the middle
+     *
+     * @param gc the graphics context to paint with
+     * @param left the x position of the tile
+     * @param top the y position of the tile
+     * @param colour the colour of the block
+     * @param shadow the shadow for the border
+     */
+    private void paintWithCircle(GraphicsContext gc, double left, double top, Color colour, DropShadow shadow) {
+        paintColor(gc, left, top, colour, shadow);
+
+        gc.setFill(Color.LIGHTGRAY);
+        gc.fillOval(left + (width / 2) - 12.5, top + (height / 2) - 12.5, 25, 25);
+    }
+}
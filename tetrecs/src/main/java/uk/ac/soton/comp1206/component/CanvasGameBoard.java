@@ -0,0 +1,204 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * A CanvasGameBoard is a GameBoard which draws every block onto a single Canvas, instead of adding each block to the
+ * scene as a Canvas of its own.
+ *
+ * The board is then one node with no per-block effects, however many blocks it has, so large boards stay cheap to lay
+ * out and render. The GameBlocks are still created and bound to the grid, but are only used to hold the state of each
+ * cell and to paint themselves onto the shared canvas, so they never make a canvas or drop shadow of their own. Clicks
+ * and hovering are found by working out which cell the mouse is over, and are passed to the same listeners as a
+ * normal GameBoard.
+ *
+ * @author Jesse Hardy
+ */
+public class CanvasGameBoard extends GameBoard {
+
+    /**
+     * Creating a new instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(CanvasGameBoard.class);
+
+    /**
+     * The canvas every block is drawn onto
+     */
+    private Canvas canvas;
+
+    /**
+     * The block the mouse is currently over, or null
+     */
+    private GameBlock hoveredBlock;
+
+    /**
+     * Create a new CanvasGameBoard, based off a given grid, with a visual width and height.
+     *
+     * @param grid linked grid
+     * @param width the visual width
+     * @param height the visual height
+     */
+    public CanvasGameBoard(Grid grid, double width, double height) {
+        super(grid, width, height);
+    }
+
+    /**
+     * Create a new CanvasGameBoard with its own internal grid, specifying the number of columns and rows, along with
+     * the visual width and height.
+     *
+     * @param cols number of columns for internal grid
+     * @param rows number of rows for internal grid
+     * @param width the visual width
+     * @param height the visual height
+     */
+    public CanvasGameBoard(int cols, int rows, double width, double height) {
+        super(cols, rows, width, height);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Also creates the canvas and listens for the mouse on it
+     */
+    @Override
+    protected void build() {
+        //Called from the GameBoard constructor, so the canvas must be made here rather than in a field initialiser
+        canvas = new Canvas(width, height);
+        super.build();
+        setGridLinesVisible(false);
+        add(canvas, 0, 0);
+
+        canvas.setOnMouseClicked(this::mouseClicked);
+        canvas.setOnMouseMoved(this::mouseMoved);
+        canvas.setOnMouseExited(this::mouseExited);
+        logger.info("Drawing {} x {} blocks onto one canvas", cols, rows);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Blocks are drawn onto the board's canvas, so are not added to the scene
+     */
+    @Override
+    protected void attachBlock(GameBlock block) {
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Draws the block into its cell of the canvas
+     */
+    @Override
+    protected void paintBlock(GameBlock block) {
+        var gc = startCell(block);
+        block.paint(gc, cellLeft(block), cellTop(block));
+        gc.restore();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Draws the fade into the block's cell of the canvas
+     */
+    @Override
+    protected void paintFade(GameBlock block, double opacity) {
+        var gc = startCell(block);
+        block.paintFade(gc, cellLeft(block), cellTop(block), opacity);
+        gc.restore();
+    }
+
+    /**
+     * Save the state of the canvas and clip drawing to a block's cell, so painting one block never leaves effects or
+     * settings behind for the next. Must be followed by a restore.
+     *
+     * @param block the block about to be drawn
+     * @return the graphics context of the canvas
+     */
+    private GraphicsContext startCell(GameBlock block) {
+        var gc = canvas.getGraphicsContext2D();
+        gc.save();
+        gc.beginPath();
+        gc.rect(cellLeft(block), cellTop(block), width / cols, height / rows);
+        gc.clip();
+        return gc;
+    }
+
+    /**
+     * Get the x position of a block's cell on the canvas
+     *
+     * @param block the block
+     * @return left edge of the cell
+     */
+    private double cellLeft(GameBlock block) {
+        return block.getX() * width / cols;
+    }
+
+    /**
+     * Get the y position of a block's cell on the canvas
+     *
+     * @param block the block
+     * @return top edge of the cell
+     */
+    private double cellTop(GameBlock block) {
+        return block.getY() * height / rows;
+    }
+
+    /**
+     * Find the block under a point on the canvas
+     *
+     * @param event the mouse event giving the point
+     * @return the block, or null if the point is outside the board
+     */
+    private GameBlock blockAt(MouseEvent event) {
+        int x = (int) Math.floor(event.getX() * cols / width);
+        int y = (int) Math.floor(event.getY() * rows / height);
+        if(x < 0 || x >= cols || y < 0 || y >= rows) return null;
+        return getBlock(x, y);
+    }
+
+    /**
+     * Pass a click on the canvas on as a click of the block under the mouse
+     *
+     * @param event mouse event
+     */
+    private void mouseClicked(MouseEvent event) {
+        var block = blockAt(event);
+        if(block != null) {
+            blockClicked(event, block);
+        }
+    }
+
+    /**
+     * Tell the hover listener when the mouse moves from one block to another
+     *
+     * @param event mouse event
+     */
+    private void mouseMoved(MouseEvent event) {
+        var block = blockAt(event);
+        if(block == hoveredBlock) return;
+        if(hoveredBlock != null) {
+            blockHovered(event, hoveredBlock, false);
+        }
+        hoveredBlock = block;
+        if(block != null) {
+            blockHovered(event, block, true);
+        }
+    }
+
+    /**
+     * Tell the hover listener when the mouse leaves the board
+     *
+     * @param event mouse event
+     */
+    private void mouseExited(MouseEvent event) {
+        if(hoveredBlock != null) {
+            blockHovered(event, hoveredBlock, false);
+            hoveredBlock = null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.BitSet;
+
+/**
+ * DirtyCellTracker batches the repaints of a GameBoard's blocks into frames.
+ *
+ * Blocks are marked dirty when their value or look changes, and are repainted together on the next pulse, so a block
+ * changed many times between two frames (such as when a PieceBoard is cleared and refilled) is only painted once.
+ * The timer only runs while there is something to paint.
+ *
+ * Must only be used on the JavaFX thread.
+ *
+ * @author Jesse Hardy
+ */
+public class DirtyCellTracker {
+
+    /**
+     * The board whose blocks are tracked
+     */
+    private final GameBoard board;
+
+    /**
+     * Number of columns in the board
+     */
+    private final int cols;
+
+    /**
+     * The blocks waiting to be painted, indexed by (y * cols + x)
+     */
+    private final BitSet dirty = new BitSet();
+
+    /**
+     * Paints the dirty blocks once per frame
+     */
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            flush();
+        }
+    };
+
+    /**
+     * Whether the timer is running
+     */
+    private boolean running;
+
+    /**
+     * Create a new tracker for a board
+     *
+     * @param board the board to repaint
+     * @param cols number of columns in the board
+     */
+    public DirtyCellTracker(GameBoard board, int cols) {
+        this.board = board;
+        this.cols = cols;
+    }
+
+    /**
+     * Mark a block as needing a repaint on the next frame
+     *
+     * @param x column
+     * @param y row
+     */
+    public void markDirty(int x, int y) {
+        dirty.set(y * cols + x);
+        if(!running) {
+            running = true;
+            timer.start();
+        }
+    }
+
+    /**
+     * Paint every dirty block now, and stop the timer until another block is marked
+     */
+    public void flush() {
+        for(int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            //A fading block is drawn by its fade, and repainted when the fade ends
+            if(!board.isFading(i % cols, i / cols)) {
+                board.paintBlock(board.getBlock(i % cols, i / cols));
+            }
+        }
+        dirty.clear();
+        timer.stop();
+        running = false;
+    }
+
+    /**
+     * Get the number of blocks waiting to be painted
+     *
+     * @return number of dirty blocks
+     */
+    public int getDirtyCount() {
+        return dirty.cardinality();
+    }
+}
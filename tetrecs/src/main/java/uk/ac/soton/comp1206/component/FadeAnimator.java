@@ -0,0 +1,230 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.BitSet;
+
+/**
+ * FadeAnimator runs the line clear fades of every block on a GameBoard from one AnimationTimer.
+ *
+ * The state of each fade lives in arrays indexed by cell, allocated once with the board, so starting a fade creates
+ * nothing. Fading a block which is already fading restarts its fade rather than running two at once. The timer only
+ * runs while something is fading.
+ *
+ * Must only be used on the JavaFX thread.
+ *
+ * @author Jesse Hardy
+ */
+public class FadeAnimator {
+
+    /**
+     * How the opacity of a block falls over the length of a fade
+     */
+    public enum Curve {
+        /**
+         * Fade at a constant rate
+         */
+        LINEAR,
+        /**
+         * Fade quickly at first, then slow down
+         */
+        EASE_OUT,
+        /**
+         * Fade slowly at first, then speed up
+         */
+        EASE_IN;
+
+        /**
+         * Get how far through the fade the opacity should be
+         *
+         * @param t fraction of the fade's time passed, from 0 to 1
+         * @return fraction of the fade done, from 0 to 1
+         */
+        public double apply(double t) {
+            return switch (this) {
+                case LINEAR -> t;
+                case EASE_OUT -> 1 - (1 - t) * (1 - t);
+                case EASE_IN -> t * t;
+            };
+        }
+    }
+
+    /**
+     * Marks a fade which has not had its first frame yet
+     */
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    /**
+     * The board whose blocks are faded
+     */
+    private final GameBoard board;
+
+    /**
+     * Number of columns in the board
+     */
+    private final int cols;
+
+    /**
+     * The cells currently fading, indexed by (y * cols + x)
+     */
+    private final BitSet fading = new BitSet();
+
+    /**
+     * The time of the first frame of each cell's fade
+     */
+    private final long[] startTimes;
+
+    /**
+     * The current opacity of each cell's fade
+     */
+    private final double[] opacities;
+
+    /**
+     * Draws one frame of every fade
+     */
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            tick(now);
+        }
+    };
+
+    /**
+     * Whether the timer is running
+     */
+    private boolean running;
+
+    /**
+     * How long a fade lasts, in nanoseconds
+     */
+    private long durationNanos = 500_000_000L;
+
+    /**
+     * The curve new frames are drawn with
+     */
+    private Curve curve = Curve.LINEAR;
+
+    /**
+     * Create a new animator for a board
+     *
+     * @param board the board to animate
+     * @param cols number of columns in the board
+     * @param rows number of rows in the board
+     */
+    public FadeAnimator(GameBoard board, int cols, int rows) {
+        this.board = board;
+        this.cols = cols;
+        this.startTimes = new long[cols * rows];
+        this.opacities = new double[cols * rows];
+    }
+
+    /**
+     * Start fading a block out, restarting its fade if it is already fading
+     *
+     * @param x column
+     * @param y row
+     */
+    public void fadeOut(int x, int y) {
+        int cell = y * cols + x;
+        fading.set(cell);
+        startTimes[cell] = NOT_STARTED;
+        opacities[cell] = 1;
+        if(!running) {
+            running = true;
+            timer.start();
+        }
+    }
+
+    /**
+     * Stop a block's fade and repaint it as it is now
+     *
+     * @param x column
+     * @param y row
+     */
+    public void cancel(int x, int y) {
+        int cell = y * cols + x;
+        if(fading.get(cell)) {
+            finish(cell);
+        }
+    }
+
+    /**
+     * Stop every fade and repaint the faded blocks as they are now
+     */
+    public void cancelAll() {
+        for(int cell = fading.nextSetBit(0); cell >= 0; cell = fading.nextSetBit(cell + 1)) {
+            finish(cell);
+        }
+    }
+
+    /**
+     * Draw the current frame of every fade, finishing any which have run their length
+     *
+     * @param now the time of this frame, in nanoseconds
+     */
+    private void tick(long now) {
+        for(int cell = fading.nextSetBit(0); cell >= 0; cell = fading.nextSetBit(cell + 1)) {
+            if(startTimes[cell] == NOT_STARTED) {
+                startTimes[cell] = now;
+            }
+            double t = Math.min(1, (double) (now - startTimes[cell]) / durationNanos);
+            opacities[cell] = 1 - curve.apply(t);
+            board.paintFade(board.getBlock(cell % cols, cell / cols), opacities[cell]);
+            if(t >= 1) {
+                finish(cell);
+            }
+        }
+        if(fading.isEmpty()) {
+            timer.stop();
+            running = false;
+        }
+    }
+
+    /**
+     * End a cell's fade and repaint its block on the next frame
+     *
+     * @param cell the cell, as (y * cols + x)
+     */
+    private void finish(int cell) {
+        fading.clear(cell);
+        board.getBlock(cell % cols, cell / cols).requestPaint();
+    }
+
+    /**
+     * Check whether a block is fading, in which case the fade draws it instead of a normal repaint
+     *
+     * @param x column
+     * @param y row
+     * @return whether the block is fading
+     */
+    public boolean isFading(int x, int y) {
+        return fading.get(y * cols + x);
+    }
+
+    /**
+     * Get the number of blocks fading
+     *
+     * @return number of fades running
+     */
+    public int getActiveCount() {
+        return fading.cardinality();
+    }
+
+    /**
+     * Set how long fades last
+     *
+     * @param millis the length of a fade in milliseconds
+     */
+    public void setDuration(long millis) {
+        this.durationNanos = Math.max(1, millis) * 1_000_000L;
+    }
+
+    /**
+     * Set the curve fades follow
+     *
+     * @param curve the curve
+     */
+    public void setCurve(Curve curve) {
+        this.curve = curve;
+    }
+}
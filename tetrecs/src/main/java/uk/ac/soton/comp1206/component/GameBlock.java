@@ -1,11 +1,11 @@
 package uk.ac.soton.comp1206.component;
 
-import javafx.animation.AnimationTimer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.paint.*;
 import javafx.scene.shape.ClosePath;
@@ -18,7 +18,9 @@ import org.apache.logging.log4j.Logger;
 /**
  * The Visual User Interface component representing a single block in the grid.
  *
- * Extends Canvas and is responsible for drawing itself.
+ * Holds the state of one cell and is responsible for drawing it. A block only makes a Canvas of its own, with its
+ * drop shadow, when a board adds it to the scene as a node; a board drawing every block onto one shared canvas never
+ * creates either.
  *
  * Displays an empty square (when the value is 0) or a coloured square depending on value.
  *
@@ -26,7 +28,7 @@ import org.apache.logging.log4j.Logger;
  *
  * @author Jesse Hardy
  */
-public class GameBlock extends Canvas {
+public class GameBlock {
     /**
      * Creating an instance of the logger
      */
@@ -83,21 +85,21 @@ public class GameBlock extends Canvas {
      */
     private final IntegerProperty value = new SimpleIntegerProperty(0);
     /**
-     * DropShadow for the graphics of the blocks
+     * The block's own canvas, made when the block is first shown as a node
      */
-    private final DropShadow shadow;
+    private Canvas canvas;
     /**
-     * Whether the block is being hovered over or not
+     * DropShadow for the graphics of the block's own canvas
      */
-    public boolean hovered;
+    private DropShadow shadow;
     /**
-     * Opacity of the blocks before they are cleared (for the animation)
+     * Whether the block is being hovered over or not
      */
-    private double opacity = 1.0;
+    public boolean hovered;
     /**
-     * Animation that fades out the blocks when they are cleared
+     * The pre-rendered tiles this block is painted from, fetched on the first paint
      */
-    private AnimationTimer fadeOutAnimation;
+    private BlockAtlas atlas;
 
     /**
      * Create a new single Game Block
@@ -115,247 +117,130 @@ public class GameBlock extends Canvas {
         this.x = x;
         this.y = y;
 
-        //A canvas needs a fixed width and height
-        setWidth(width);
-        setHeight(height);
-
-        //Creating a drop shadow
-        shadow = new DropShadow();
-        shadow.setColor(Color.rgb(0, 0, 0, 0.5));
-        shadow.setOffsetX(5);
-        shadow.setOffsetY(5);
-        shadow.setRadius(5);
-        setEffect(shadow);
-
-
-        //Do an initial paint
-        paint();
+        //Do an initial paint on the first frame
+        requestPaint();
 
         //When the value property is updated, call the internal updateValue method
         value.addListener(this::updateValue);
     }
 
     /**
-     * When the value of this block is updated,
+     * When the value of this block is updated, repaint it on the next frame
      * @param observable what was updated
      * @param oldValue the old value
      * @param newValue the new value
      */
     private void updateValue(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
-        paint();
+        requestPaint();
     }
 
     /**
-     * Fades out the block when it is cleared by the user
+     * Repaint this block on the next frame, along with any other blocks changed before then
      */
-    public void fadeOut() {
-        var gc = getGraphicsContext2D();
-        if (fadeOutAnimation != null) {
-            fadeOutAnimation.stop();
-        }
-        fadeOutAnimation = new AnimationTimer() {
-            private long startTime = -1;
-            private boolean isRunning = true;
+    public void requestPaint() {
+        gameBoard.requestPaint(this);
+    }
 
-            @Override
-            public void handle(long now) {
-                if (startTime == -1) {
-                    startTime = now;
-                }
-                double elapsed = (now - startTime) / 500_000_000.0; // seconds
-                opacity = Math.max(0, 1 - elapsed);
-                gc.setFill(Color.LIME);
-                gc.fillRect(0, 0, width, height);
-                gc.setFill(Color.color(0, 0, 0, opacity));
-                gc.fillRect(0, 0, width, height);
-                if (opacity == 0 && isRunning) {
-                    isRunning = false;
-                    paintEmpty();
-                    fadeOutAnimation.stop();
-                }
-            }
-        };
-        fadeOutAnimation.start();
+    /**
+     * Paint one frame of the fade out animation onto a canvas
+     *
+     * @param gc the graphics context to paint with
+     * @param left the x position of the block on the canvas
+     * @param top the y position of the block on the canvas
+     * @param opacity how far through the fade the block is, from 1 down to 0
+     */
+    public void paintFade(GraphicsContext gc, double left, double top, double opacity) {
+        gc.setFill(Color.LIME);
+        gc.fillRect(left, top, width, height);
+        gc.setFill(Color.color(0, 0, 0, opacity));
+        gc.fillRect(left, top, width, height);
+    }
+
+    /**
+     * Get the block's own canvas, to show the block as a node of its own. The canvas and its drop shadow are made the
+     * first time this is called.
+     *
+     * @return the canvas
+     */
+    public Canvas getCanvas() {
+        if(canvas == null) {
+            //A canvas needs a fixed width and height
+            canvas = new Canvas(width, height);
+
+            //Creating a drop shadow
+            shadow = new DropShadow();
+            shadow.setColor(Color.rgb(0, 0, 0, 0.5));
+            shadow.setOffsetX(5);
+            shadow.setOffsetY(5);
+            shadow.setRadius(5);
+            canvas.setEffect(shadow);
+        }
+        return canvas;
     }
 
     /**
      * Handle painting of the block canvas
      */
     public void paint() {
-        //If the block is empty, paint as empty
+        var style = style();
+        //Only coloured blocks cast a shadow
+        getCanvas().setEffect(style == BlockAtlas.Style.EMPTY ? null : shadow);
+        atlas().draw(canvas.getGraphicsContext2D(), style, value.get(), 0, 0);
+    }
+
+    /**
+     * Paint the block onto a canvas at the given position, by copying its tile from the block atlas. Used to draw
+     * every block of a board onto one canvas.
+     *
+     * @param gc the graphics context to paint with
+     * @param left the x position of the block on the canvas
+     * @param top the y position of the block on the canvas
+     */
+    public void paint(GraphicsContext gc, double left, double top) {
+        atlas().draw(gc, style(), value.get(), left, top);
+    }
+
+    /**
+     * Work out which tile the block should be drawn with
+     *
+     * @return the style of tile
+     */
+    private BlockAtlas.Style style() {
+        BlockAtlas.Style style;
         if(this.isHovered()){
-            paintForHover(COLOURS[value.get()]);
+            style = BlockAtlas.Style.HOVER;
         }
+        //If the block is empty, paint as empty
         else if(value.get() == 0) {
-            paintEmpty();
+            style = BlockAtlas.Style.EMPTY;
         }
-
         else if(this.gameBoard instanceof PieceBoard && getX()==1 && getY()==1 && ((PieceBoard) this.gameBoard).getWithDot()){
-           paintWithCircle(COLOURS[value.get()]);
+            style = BlockAtlas.Style.DOT;
         }
-
-
         else{
-            paintColor(COLOURS[value.get()]);
+            style = BlockAtlas.Style.NORMAL;
         }
+        return style;
     }
 
     /**
      * Paint this canvas empty
      */
     public void paintEmpty() {
-        var gc = getGraphicsContext2D();
-
-        // Remove any effects
-        setEffect(null);
-        gc.setEffect(null);
-
-        // Remove the border by setting the stroke color to transparent
-        gc.setStroke(Color.TRANSPARENT);
-        gc.strokeRect(0, 0, width, height);
-
-        // Clear
-        gc.clearRect(0,0,width,height);
-
-        gc.setGlobalAlpha(0.6);
-        //Fill
-        gc.setFill(Color.BLACK);
-        gc.fillRect(0,0, width, height);
-
-        //Border
-        gc.setStroke(Color.GHOSTWHITE);
-        gc.setLineWidth(2);
-        gc.strokeRect(0,0,width,height);
-    }
-
-    /**
-     * Paint this canvas with the given colour
-     * @param colour the colour to paint
-     */
-    private void paintColor(Paint colour) {
-        var gc = getGraphicsContext2D();
-
-        // Remove any effects
-        setEffect(null);
-
-        // Clear
-        gc.clearRect(0, 0, width, height);
-        gc.setGlobalAlpha(1);
-
-        // Colour fill
-        gc.setFill(colour);
-        gc.fillRect(0, 0, width, height);
-
-        // Create a triangle inside the rectangle using fillPolygon method
-        double[] xPoints = {0, width, width};
-        double[] yPoints = {0, 0, height};
-        Color color = (Color) colour;
-        Color darkerColor = color.deriveColor(0, 1, 0.8, 1);
-        gc.setFill(darkerColor);
-        gc.fillPolygon(xPoints, yPoints, 3); // fill the polygon with three points
-
-        // Border with gradient stroke and shadow effect
-        gc.setLineWidth(2);
-
-        // Add a shadow effect to one side of the rectangle
-        setEffect(shadow);
-        gc.setEffect(shadow);
-
-        // Draw the border with the gradient stroke
-        gc.setStroke(Color.WHITE);
-        gc.strokeRect(0, 0, width, height);
+        getCanvas().setEffect(null);
+        atlas().draw(canvas.getGraphicsContext2D(), BlockAtlas.Style.EMPTY, 0, 0, 0);
     }
 
     /**
-     * Paints the block so that it has the effect of being hovered over which has a
-     * grey overlay.
+     * Get the atlas of pre-rendered tiles for this block's size
      *
-     * @param colour The original colour of the block
+     * @return the atlas
      */
-    public void paintForHover(Paint colour){
-        var gc = getGraphicsContext2D();
-
-        // Remove any effects
-        setEffect(null);
-
-        // Clear
-        gc.clearRect(0, 0, width, height);
-        gc.setGlobalAlpha(1);
-
-        // Colour fill
-        gc.setFill(colour);
-        gc.fillRect(0, 0, width, height);
-
-        // Create a triangle inside the rectangle using fillPolygon method
-        double[] xPoints = {0, width, width};
-        double[] yPoints = {0, 0, height};
-        Color color = (Color) colour;
-        Color darkerColor = color.deriveColor(0, 1, 0.8, 1);
-        gc.setFill(darkerColor);
-        gc.fillPolygon(xPoints, yPoints, 3); // fill the polygon with three points
-
-        // Border with gradient stroke and shadow effect
-        gc.setLineWidth(2);
-
-        // Add a shadow effect to one side of the rectangle
-        setEffect(shadow);
-        gc.setEffect(shadow);
-
-        // Draw the border with the gradient stroke
-        gc.setStroke(Color.BLACK);
-        gc.setLineWidth(5);
-        gc.strokeRect(0, 0, width, height);
-
-        // Create a light grey highlight overlay
-        gc.setFill(Color.rgb(192, 192, 192, 0.5)); // Set the fill color to a partially transparent light grey
-        gc.fillRect(0, 0, width, height);
-    }
-
-    /**
-     * Paints the block with a circle in the middle, which is used for the incoming pieceBoard.
-     * @param colour The original colour of the block
-     */
-    private void paintWithCircle(Paint colour){
-        logger.info(colour);
-        var gc = getGraphicsContext2D();
-
-        // Remove any effects
-        setEffect(null);
-
-        // Clear
-        gc.clearRect(0, 0, width, height);
-        gc.setGlobalAlpha(1);
-
-        // Colour fill
-        gc.setFill(colour);
-        gc.fillRect(0, 0, width, height);
-
-        // Create a triangle inside the rectangle using fillPolygon method
-        double[] xPoints = {0, width, width};
-        double[] yPoints = {0, 0, height};
-        Color color = (Color) colour;
-        Color darkerColor = color.deriveColor(0, 1, 0.8, 1);
-        gc.setFill(darkerColor);
-        gc.fillPolygon(xPoints, yPoints, 3); // fill the polygon with three points
-
-        // Border with gradient stroke and shadow effect
-        gc.setLineWidth(2);
-
-        // Add a shadow effect to one side of the rectangle
-        setEffect(shadow);
-        gc.setEffect(shadow);
-
-        // Create a linear gradient for the border
-        LinearGradient gradient = new LinearGradient(0, 0, 0, height, false, CycleMethod.NO_CYCLE,
-                new Stop(0, Color.WHITE), new Stop(0.5, Color.GRAY), new Stop(1, Color.WHITE));
-        gc.setStroke(gradient);
-
-        // Draw the border with the gradient stroke
-        gc.setStroke(Color.WHITE);
-        gc.strokeRect(0, 0, width, height);
-
-        gc.setFill(Color.LIGHTGRAY);
-        gc.fillOval((height/2)-12.5, (width/2)-12.5, 25, 25);
+    private BlockAtlas atlas() {
+        if(atlas == null) {
+            atlas = BlockAtlas.forSize(width, height);
+        }
+        return atlas;
     }
 
     /**
@@ -36,28 +36,43 @@ public class GameBoard extends GridPane {
     /**
      * Number of columns in the board
      */
-    private final int cols;
+    final int cols;
 
     /**
      * Number of rows in the board
      */
-    private final int rows;
+    final int rows;
 
     /**
      * The visual width of the board - has to be specified due to being a Canvas
      */
-    private final double width;
+    final double width;
 
     /**
      * The visual height of the board - has to be specified due to being a Canvas
      */
-    private final double height;
+    final double height;
 
     /**
      * The grid this GameBoard represents
      */
     final Grid grid;
 
+    /**
+     * The property view of the grid, which the blocks are bound to
+     */
+    private GridPropertyView gridView;
+
+    /**
+     * Tracks which blocks need repainting on the next frame
+     */
+    private DirtyCellTracker dirtyCells;
+
+    /**
+     * Runs the line clear fades of every block on the board
+     */
+    private FadeAnimator fades;
+
     /**
      * The blocks inside the grid
      */
@@ -127,6 +142,15 @@ public class GameBoard extends GridPane {
         return blocks[x][y];
     }
 
+    /**
+     * Mark a block as needing a repaint. Blocks are repainted at most once per frame.
+     *
+     * @param block the block to repaint
+     */
+    public void requestPaint(GameBlock block) {
+        dirtyCells.markDirty(block.getX(), block.getY());
+    }
+
     /**
      * Build the GameBoard by creating a block at every x and y column and row
      */
@@ -139,6 +163,9 @@ public class GameBoard extends GridPane {
         setGridLinesVisible(true);
 
         blocks = new GameBlock[cols][rows];
+        gridView = new GridPropertyView(grid);
+        dirtyCells = new DirtyCellTracker(this, cols);
+        fades = new FadeAnimator(this, cols, rows);
 
         for(var y = 0; y < rows; y++) {
             for (var x = 0; x < cols; x++) {
@@ -161,23 +188,74 @@ public class GameBoard extends GridPane {
         //Create a new GameBlock UI component
         GameBlock block = new GameBlock(this, x, y, blockWidth, blockHeight);
 
-        //Add to the GridPane
-        add(block,x,y);
-
         //Add to our block directory
         blocks[x][y] = block;
 
         //Link the GameBlock component to the corresponding value in the Grid
-        block.bind(grid.getGridProperty(x,y));
+        block.bind(gridView.getProperty(x,y));
 
-        //Add a mouse click handler to the block to trigger GameBoard blockClicked method
-        block.setOnMouseClicked((e) -> blockClicked(e, block));
-        block.setOnMouseEntered((e) -> blockHovered(e, block, true));
-        block.setOnMouseExited((e) -> blockHovered(e, block, false));
+        //Show the block on the board
+        attachBlock(block);
 
         return block;
     }
 
+    /**
+     * Add a block to the board as its own node, and listen for the mouse on it
+     *
+     * @param block the block to add
+     */
+    protected void attachBlock(GameBlock block) {
+        var canvas = block.getCanvas();
+
+        //Add to the GridPane
+        add(canvas, block.getX(), block.getY());
+
+        //Add a mouse click handler to the block to trigger GameBoard blockClicked method
+        canvas.setOnMouseClicked((e) -> blockClicked(e, block));
+        canvas.setOnMouseEntered((e) -> blockHovered(e, block, true));
+        canvas.setOnMouseExited((e) -> blockHovered(e, block, false));
+    }
+
+    /**
+     * Paint a block now. Called by the board's DirtyCellTracker once per frame for each changed block.
+     *
+     * @param block the block to paint
+     */
+    protected void paintBlock(GameBlock block) {
+        block.paint();
+    }
+
+    /**
+     * Paint the current frame of a block's fade out animation. Called by the board's FadeAnimator.
+     *
+     * @param block the fading block
+     * @param opacity how far through the fade the block is, from 1 down to 0
+     */
+    protected void paintFade(GameBlock block, double opacity) {
+        block.paintFade(block.getCanvas().getGraphicsContext2D(), 0, 0, opacity);
+    }
+
+    /**
+     * Get the animator running this board's line clear fades, to change how they look
+     *
+     * @return the fade animator
+     */
+    public FadeAnimator getFadeAnimator() {
+        return fades;
+    }
+
+    /**
+     * Check whether a block is in the middle of fading out
+     *
+     * @param x column
+     * @param y row
+     * @return whether the block is fading
+     */
+    public boolean isFading(int x, int y) {
+        return fades.isFading(x, y);
+    }
+
     /**
      * Set the listener to handle an event when a block is clicked
      *
@@ -215,7 +293,7 @@ public class GameBoard extends GridPane {
      * @param event mouse event
      * @param block block clicked on
      */
-    private void blockClicked(MouseEvent event, GameBlock block) {
+    protected void blockClicked(MouseEvent event, GameBlock block) {
         logger.info("Block clicked: {}", block);
         if(event.getButton().equals(MouseButton.PRIMARY)) {
             if (blockClickedListener != null) {
@@ -233,7 +311,7 @@ public class GameBoard extends GridPane {
     /**
      * Triggered when a block is hovered over. Call the attached listener.
      */
-    private void blockHovered(MouseEvent event, GameBlock block, Boolean entered){
+    protected void blockHovered(MouseEvent event, GameBlock block, Boolean entered){
         if (changeAimListener != null) {
             changeAimListener.changeAim(block, entered);
         }
@@ -246,10 +324,7 @@ public class GameBoard extends GridPane {
      */
     public void fadeOut(Set<GameBlockCoordinate> coordinates) {
         for (GameBlockCoordinate coord : coordinates) {
-            GameBlock block = getBlock(coord.getX(), coord.getY());
-            if (block != null) {
-                block.fadeOut();
-            }
+            fades.fadeOut(coord.getX(), coord.getY());
         }
     }
 }
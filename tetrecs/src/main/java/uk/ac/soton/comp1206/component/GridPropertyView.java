@@ -0,0 +1,111 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.application.Platform;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import uk.ac.soton.comp1206.game.Grid;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * GridPropertyView exposes the cells of a Grid as IntegerProperties so they can be bound to GameBlocks.
+ *
+ * The Grid itself only holds primitive values. The properties are created when a view is attached, and are kept in
+ * sync by listening to cell updates on the Grid, so a Grid without a display has no property overhead at all.
+ *
+ * The grid may be changed on another thread, such as a game's command thread. Those changes are recorded and copied
+ * into the properties on the JavaFX thread, with any number of changes between two frames applied in one go.
+ *
+ * @author Jesse Hardy
+ */
+public class GridPropertyView {
+
+    /**
+     * The grid being viewed
+     */
+    private final Grid grid;
+
+    /**
+     * One property per cell, holding the same value as the grid
+     */
+    private final SimpleIntegerProperty[][] properties;
+
+    /**
+     * The latest value of each cell, indexed by (y * cols + x), written from any thread
+     */
+    private final AtomicIntegerArray latest;
+
+    /**
+     * Whether a copy of the latest values into the properties is waiting on the JavaFX thread
+     */
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    /**
+     * Create a new view of the given grid and start listening to it
+     *
+     * @param grid the grid to view
+     */
+    public GridPropertyView(Grid grid) {
+        this.grid = grid;
+
+        properties = new SimpleIntegerProperty[grid.getCols()][grid.getRows()];
+        latest = new AtomicIntegerArray(grid.getCols() * grid.getRows());
+        for(var y = 0; y < grid.getRows(); y++) {
+            for(var x = 0; x < grid.getCols(); x++) {
+                properties[x][y] = new SimpleIntegerProperty(grid.get(x, y));
+                latest.set(y * grid.getCols() + x, grid.get(x, y));
+            }
+        }
+
+        grid.setOnCellUpdated(this::cellUpdated);
+    }
+
+    /**
+     * Get the Integer property for a given row and column index. Can be used for binding.
+     *
+     * @param x column
+     * @param y row
+     * @return the IntegerProperty at the given x and y
+     */
+    public IntegerProperty getProperty(int x, int y) {
+        return properties[x][y];
+    }
+
+    /**
+     * Get the grid being viewed
+     *
+     * @return the grid
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Record a changed grid value, and copy it into the matching property on the JavaFX thread
+     *
+     * @param x column
+     * @param y row
+     * @param value the new value
+     */
+    private void cellUpdated(int x, int y, int value) {
+        latest.set(y * grid.getCols() + x, value);
+        if(Platform.isFxApplicationThread()) {
+            properties[x][y].set(value);
+        } else if(flushPending.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    /**
+     * Copy the latest value of every cell into its property. Called on the JavaFX thread.
+     */
+    private void flush() {
+        flushPending.set(false);
+        for(var y = 0; y < grid.getRows(); y++) {
+            for(var x = 0; x < grid.getCols(); x++) {
+                properties[x][y].set(latest.get(y * grid.getCols() + x));
+            }
+        }
+    }
+}
@@ -47,7 +47,7 @@ public class PieceBoard extends GameBoard{
         clear();
         for (int col = 0; col <= 2; col++){
             for (int row = 0; row <= 2; row++){
-                if (piece.getBlocks()[col][row] != 0){
+                if (piece.getBlock(col, row) != 0){
                     this.grid.set(col, row, piece.getValue());
                 }
             }
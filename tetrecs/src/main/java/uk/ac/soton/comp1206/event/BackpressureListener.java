@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Backpressure Listener is told when the Communicator's outgoing queue fills up, and when it has room again, so
+ * senders can slow down or drop messages which don't matter.
+ *
+ * @author Jesse Hardy
+ */
+public interface BackpressureListener {
+
+    /**
+     * Handle the outgoing queue filling up or emptying
+     *
+     * @param full whether the queue is full
+     */
+    public void backpressure(boolean full);
+}
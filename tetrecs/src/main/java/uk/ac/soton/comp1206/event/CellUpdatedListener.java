@@ -0,0 +1,19 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Cell Updated listener is used to handle the event when the value of a cell in a Grid changes. It passes the
+ * column, row and new value of the cell.
+ *
+ * @author Jesse Hardy
+ */
+public interface CellUpdatedListener {
+
+    /**
+     * Handle a cell updated event
+     *
+     * @param x column
+     * @param y row
+     * @param value the new value
+     */
+    public void cellUpdated(int x, int y, int value);
+}
@@ -0,0 +1,85 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+
+/**
+ * The Game Event listener receives everything that happens inside a GameEngine. Every method has an empty default,
+ * so a listener only needs to handle the events it cares about.
+ *
+ * Events are called on whichever thread is driving the engine.
+ *
+ * @author Jesse Hardy
+ */
+public interface GameEventListener {
+
+    /**
+     * Handle new pieces being provided by the game
+     *
+     * @param piece the current piece
+     * @param followingPiece the next piece
+     */
+    default void nextPiece(GamePiece piece, GamePiece followingPiece) {}
+
+    /**
+     * Handle a piece being played on the grid
+     *
+     * @param piece the piece that was played
+     * @param x the column it was played at
+     * @param y the row it was played at
+     */
+    default void piecePlaced(GamePiece piece, int x, int y) {}
+
+    /**
+     * Handle a piece not fitting where the player tried to play it
+     *
+     * @param piece the piece that did not fit
+     * @param x the column it was tried at
+     * @param y the row it was tried at
+     */
+    default void placementFailed(GamePiece piece, int x, int y) {}
+
+    /**
+     * Handle the current piece being rotated
+     *
+     * @param piece the rotated piece
+     */
+    default void pieceRotated(GamePiece piece) {}
+
+    /**
+     * Handle the current and following pieces being swapped
+     *
+     * @param piece the new current piece
+     * @param followingPiece the new following piece
+     */
+    default void piecesSwapped(GamePiece piece, GamePiece followingPiece) {}
+
+    /**
+     * Handle lines being cleared. Called before the cells are emptied.
+     *
+     * @param lines the number of lines cleared
+     * @param mask the cells being cleared, as a Grid mask. Only valid during the call.
+     */
+    default void linesCleared(int lines, long[] mask) {}
+
+    /**
+     * Handle a life being lost because the timer ran out
+     *
+     * @param lives the number of lives left
+     */
+    default void lifeLost(int lives) {}
+
+    /**
+     * Handle a change to the score, multiplier, level or lives
+     *
+     * @param score the current score
+     * @param multiplier the current multiplier
+     * @param level the current level
+     * @param lives the current lives
+     */
+    default void statsChanged(int score, int multiplier, int level, int lives) {}
+
+    /**
+     * Handle the game ending
+     */
+    default void gameOver() {}
+}
@@ -0,0 +1,34 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Leaderboard Listener receives every change to a Leaderboard, one entry at a time, so a view can update just
+ * the rows that changed. Every method has an empty default, so a listener only needs to handle the changes it cares
+ * about.
+ *
+ * Changes are called on whichever thread changed the leaderboard, in the order they happened.
+ *
+ * @author Jesse Hardy
+ */
+public interface LeaderboardListener {
+
+    /**
+     * Handle an entry being added
+     *
+     * @param rank the rank it was added at, from 0 for the top
+     * @param name the player's name
+     * @param score the score
+     */
+    default void entryAdded(int rank, String name, int score) {}
+
+    /**
+     * Handle an entry being removed. The entries below it move up one rank.
+     *
+     * @param rank the rank it was removed from
+     */
+    default void entryRemoved(int rank) {}
+
+    /**
+     * Handle every entry being removed
+     */
+    default void cleared() {}
+}
@@ -0,0 +1,110 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A CommandQueue runs the commands given to it one at a time, in the order they were given, on a shared executor.
+ * Everything that changes a game goes through its queue, so the game only ever has one writer and never needs a lock,
+ * whichever threads the player's input and the timer come from.
+ *
+ * Commands are run in small batches, so one busy game cannot hold up the other games sharing the executor.
+ *
+ * @author Jesse Hardy
+ */
+public class CommandQueue implements Executor {
+
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(CommandQueue.class);
+
+    /**
+     * The most commands to run before letting other work on the executor go first
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * The executor the commands are run on
+     */
+    private final Executor executor;
+
+    /**
+     * Commands waiting to run
+     */
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a batch of commands has been handed to the executor and not yet finished
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * The thread running commands right now, or null
+     */
+    private volatile Thread writer;
+
+    /**
+     * Create a new CommandQueue
+     *
+     * @param executor the executor to run commands on
+     */
+    public CommandQueue(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Add a command to the end of the queue
+     *
+     * @param command the command to run
+     */
+    @Override
+    public void execute(Runnable command) {
+        commands.add(command);
+        schedule();
+    }
+
+    /**
+     * Check whether the calling thread is the one running this queue's commands
+     *
+     * @return whether the caller is inside a command
+     */
+    public boolean isWriterThread() {
+        return writer == Thread.currentThread();
+    }
+
+    /**
+     * Hand a batch of commands to the executor, unless one is already waiting or running
+     */
+    private void schedule() {
+        if(scheduled.compareAndSet(false, true)) {
+            executor.execute(this::runBatch);
+        }
+    }
+
+    /**
+     * Run waiting commands, then reschedule if more arrived
+     */
+    private void runBatch() {
+        writer = Thread.currentThread();
+        try {
+            Runnable command;
+            for(int run = 0; run < BATCH && (command = commands.poll()) != null; run++) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    logger.error("Game command failed", e);
+                }
+            }
+        } finally {
+            writer = null;
+            scheduled.set(false);
+        }
+        if(!commands.isEmpty()) schedule();
+    }
+}
@@ -1,25 +1,30 @@
 package uk.ac.soton.comp1206.game;
 
+import javafx.application.Platform;
 import javafx.beans.property.*;
-import javafx.geometry.Point2D;
-import javafx.scene.input.KeyCode;
-import javafx.scene.input.KeyEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
-import uk.ac.soton.comp1206.component.GameBoard;
 import uk.ac.soton.comp1206.event.*;
-import uk.ac.soton.comp1206.scene.ChallengeScene;
 
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * The Game class handles the main logic, state and properties of the TetrECS game. Methods to manipulate the game state
- * and to handle actions made by the player should take place inside this class.
+ * The Game class connects a GameEngine to the user interface. The rules and state of the game live in the engine;
+ * the Game exposes them as JavaFX properties, plays the sound effects, runs the timer and calls the UI listeners.
+ *
+ * Every change to the game (placing, rotating, swapping, the timer running out) is a command on the game's
+ * CommandQueue, so the engine only ever has one writer. After each command a GameSnapshot is published to the JavaFX
+ * thread, which updates the properties from it; if several commands finish before the JavaFX thread gets to it, only
+ * the latest snapshot is applied. UI listeners are always called on the JavaFX thread.
  *
  * @author Silen
  * @version $Id: $Id
@@ -30,21 +35,9 @@ public class Game {
      */
     private static final Logger logger = LogManager.getLogger(Game.class);
     /**
-     * Random for creating a new piece
-     */
-    private Random random = new Random();
-    /**
-     * Keep track of the currentPiece
-     */
-    private GamePiece currentPiece;
-    /**
-     * Keep track of the followingPiece
+     * The engine holding the rules and state of this game
      */
-    private GamePiece followingPiece;
-    /**
-     * ArrayList containing the currentPiece and the followingPiece
-     */
-    ArrayList<GamePiece> piecesToPlay = new ArrayList<>(2);
+    private final GameEngine engine;
     /**
      * Keep track of the currentLives
      */
@@ -66,13 +59,41 @@ public class Game {
      */
     public NextPieceListener nextPieceListener;
     /**
-     * Instance of the LineClearedListener
+     * Instance of the LineClearedListener. Set on the JavaFX thread and read on the command thread.
+     */
+    public volatile LineClearedListener lineClearedListener;
+    /**
+     * The clock running this game's timer, shared with every other game
+     */
+    private final GameClock clock = GameClock.shared();
+    /**
+     * Handle to the pending timeout of the current piece, or null when the timer is stopped
+     */
+    private ScheduledFuture<?> timeout;
+    /**
+     * When the current piece times out, as a System.nanoTime value
+     */
+    private volatile long deadline;
+    /**
+     * The single writer every change to the game goes through
+     */
+    private final CommandQueue commands = new CommandQueue(clock.getExecutor());
+    /**
+     * Runs work on the user interface thread
+     */
+    private final Executor ui = Platform::runLater;
+    /**
+     * The latest snapshot of the game
      */
-    public LineClearedListener lineClearedListener;
+    private final AtomicReference<GameSnapshot> snapshot = new AtomicReference<>();
     /**
-     * Creates a new timer
+     * Whether a snapshot is waiting to be applied on the user interface thread
      */
-    private ScheduledExecutorService timer;
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    /**
+     * Whether the game has been stopped, after which commands are ignored. Only used on the command thread.
+     */
+    private boolean stopped;
     /**
      * Instance of the GameLoopListener
      */
@@ -93,22 +114,30 @@ public class Game {
     protected final int cols;
 
     /**
-     * The grid model linked to the game
+     * Create a new game with the specified rows and columns. Creates a corresponding engine and grid model.
+     *
+     * @param cols number of columns
+     * @param rows number of rows
      */
-    protected final Grid grid;
+    public Game(int cols, int rows) {
+        this(cols, rows, ThreadLocalRandom.current().nextLong());
+    }
 
     /**
-     * Create a new game with the specified rows and columns. Creates a corresponding grid model.
+     * Create a new game with the specified rows and columns, whose pieces are generated from the given seed.
      *
      * @param cols number of columns
      * @param rows number of rows
+     * @param seed the seed to generate pieces from
      */
-    public Game(int cols, int rows) {
+    public Game(int cols, int rows, long seed) {
         this.cols = cols;
         this.rows = rows;
 
-        //Create a new grid model to represent the game state
-        this.grid = new Grid(cols,rows);
+        //Create a new engine to hold the game state
+        this.engine = new GameEngine(cols, rows, seed);
+        engine.setListener(new EngineListener());
+        snapshot.set(new GameSnapshot(engine));
     }
 
     /**
@@ -120,199 +149,159 @@ public class Game {
     }
 
     /**
-     * Generates the next pieces that are to be played
+     * Rotates the current piece given a number of rotations
+     *
+     * @param rotations an int
      */
-    public void nextPiece(){
-        spawnPiece();
-        currentPiece = piecesToPlay.get(0);
-        logger.info("The next piece is: {}", currentPiece);
-        followingPiece = piecesToPlay.get(1);
-        logger.info("The following piece is: {}", followingPiece);
-        if (this.nextPieceListener != null){
-            nextPieceListener.nextPiece(this.currentPiece, this.followingPiece);
-        }
+    public void rotateCurrentPiece(int rotations){
+        command(() -> {
+            logger.info("Rotating piece {}", engine.getCurrentPiece());
+            engine.rotate(rotations);
+        });
     }
 
     /**
-     * Spawns a new piece and fills the array piecesToPlay when a piece is played
+     * Swaps the current piece with the following piece
      */
-    public void spawnPiece(){
-        var maxPieces = GamePiece.PIECES;
-        while(piecesToPlay.size()<2){
-            var randomPiece = random.nextInt(maxPieces);
-            logger.info("Picking random piece: {}", randomPiece);
-            var piece = GamePiece.createPiece(randomPiece);
-            piecesToPlay.add(piece);
-        }
+    public void swapCurrentPiece(){
+        command(engine::swap);
+    }
 
+    /**
+     * Initialise a new game and set up anything that needs to be done at the start
+     */
+    public void initialiseGame() {
+        command(() -> {
+            logger.info("Initialising game");
+            if(ReplayLog.isEnabled()) engine.record();
+            engine.start();
+            armTimer();
+        });
     }
 
     /**
-     * Controls what needs to be updated after a piece is played by the user
+     * Run a change to the game on its command queue, then publish the new state
+     *
+     * @param change the change to make
      */
-    public void afterPiece(){
-        logger.info("Checking if any lines need to be cleared");
-        HashSet<GameBlockCoordinate> coordinatesToClear = new HashSet<>();
-        int blocksCleared = 0;
-        int linesCleared = 0;
-        //Check if there are any vertical lines
-        for(int x=0; x<grid.getRows(); x++){
-            HashSet<GameBlockCoordinate> tempCoordinates = new HashSet<>();
-            for(int y=0; y<grid.getCols(); y++){
-                if(grid.get(x,y) > 0){
-                    var block = new GameBlockCoordinate(x,y);
-                    tempCoordinates.add(block);
-                    if(tempCoordinates.size()==grid.getCols()){
-                        coordinatesToClear.addAll(tempCoordinates);
-                        logger.info("Vertical line at x={} is cleared",x);
-                        linesCleared++;
-                    }
-                }
-                else{
-                    break;
-                }
-            }
-        }
-        //Check if there are any horizontal lines
-        for(int y=0; y<grid.getRows(); y++){
-            HashSet<GameBlockCoordinate> tempCoordinates = new HashSet<>();
-            for(int x=0; x<grid.getCols(); x++){
-                if(grid.get(x,y) > 0){
-                    var block = new GameBlockCoordinate(x,y);
-                    tempCoordinates.add(block);
-                    if(tempCoordinates.size()==grid.getRows()){
-                        coordinatesToClear.addAll(tempCoordinates);
-                        logger.info("Horizontal line at y={} is cleared",y);
-                        linesCleared++;
-                    }
-                }
-                else{
-                    break;
-                }
-            }
-        }
-        if(coordinatesToClear.size()>0){
-            Multimedia.playAudio("clear.wav");
-        }
-        if(lineClearedListener != null){
-            this.lineClearedListener.lineCleared(coordinatesToClear);
-        }
-        for(GameBlockCoordinate block: coordinatesToClear){
-            grid.set(block.getX(), block.getY(), 0);
-        }
-        blocksCleared = coordinatesToClear.size();
-        score(linesCleared, blocksCleared);
-        multiplier(linesCleared);
-        level(getCurrentScore());
+    private void command(Runnable change) {
+        commands.execute(() -> {
+            if(stopped) return;
+            change.run();
+            publish();
+        });
     }
 
     /**
-     * Rotates the current piece given a number of rotations
+     * Stop the game: the timer is cancelled and any later commands are ignored. The replay is encoded on the command
+     * thread, after every command given before this one, so it is never read while it is being written.
      *
-     * @param rotations an int
+     * @return a future completed with the encoded replay, or with null if the game was not recorded
      */
-    public void rotateCurrentPiece(int rotations){
-        logger.info("Rotating piece {}", currentPiece.toString());
-        currentPiece.rotate(rotations);
-        if (this.nextPieceListener != null){
-            nextPieceListener.nextPiece(this.currentPiece, this.followingPiece);
-        }
-        Multimedia.playAudio("rotate.wav");
+    public CompletableFuture<byte[]> stop() {
+        var replay = new CompletableFuture<byte[]>();
+        commands.execute(() -> {
+            stopped = true;
+            cancelTimer();
+            var log = engine.getReplayLog();
+            replay.complete(log == null ? null : log.toByteArray());
+        });
+        return replay;
     }
 
     /**
-     * Swaps the current piece with the following piece
+     * Take a snapshot of the game and make sure it is applied on the user interface thread. Snapshots which are
+     * replaced before the user interface gets to them are never applied. Must be called on the command thread.
      */
-    public void swapCurrentPiece(){
-        var tempPiece = piecesToPlay.get(1);
-        piecesToPlay.set(1, piecesToPlay.get(0));
-        piecesToPlay.set(0, tempPiece);
-        currentPiece = piecesToPlay.get(0);
-        logger.info("The next piece is: {}", currentPiece);
-        followingPiece = piecesToPlay.get(1);
-        logger.info("The following piece is: {}", followingPiece);
-        if (this.nextPieceListener != null){
-            nextPieceListener.nextPiece(this.currentPiece, this.followingPiece);
+    private void publish() {
+        snapshot.set(new GameSnapshot(engine));
+        if(snapshotPending.compareAndSet(false, true)) {
+            ui.execute(this::applySnapshot);
         }
-        Multimedia.playAudio("rotate.wav");
     }
 
+    /**
+     * Copy the latest snapshot into the properties. Called on the user interface thread.
+     */
+    private void applySnapshot() {
+        snapshotPending.set(false);
+        var state = snapshot.get();
+        currentScore.set(state.getScore());
+        currentMultiplier.set(state.getMultiplier());
+        currentLevel.set(state.getLevel());
+        currentLives.set(state.getLives());
+    }
 
     /**
-     * Calculates what the score should be after a line is cleared
+     * Publish the current state, then call a listener on the user interface thread once the state has been applied.
+     * Must be called on the command thread.
      *
-     * @param linesCleared a {@link java.lang.Integer} object
-     * @param blocksCleared a {@link java.lang.Integer} object
+     * @param event the listener call
      */
-    public void score(Integer linesCleared, Integer blocksCleared){
-        Integer newScore = linesCleared*blocksCleared*10*getCurrentMultiplier();
-        setCurrentScore(getCurrentScore()+newScore);
+    private void fireUi(Runnable event) {
+        publish();
+        ui.execute(event);
     }
 
     /**
-     * Calculates what the multiplier should be after a block is placed
+     * Get the latest snapshot of the game. Safe to call from any thread.
      *
-     * @param linesCleared a {@link java.lang.Integer} object
+     * @return the latest snapshot
      */
-    public void multiplier(Integer linesCleared){
-        if(linesCleared>0){
-            setCurrentMultiplier(getCurrentMultiplier()+1);
-        }
-        else{
-            setCurrentMultiplier(1);
-        }
+    public GameSnapshot getSnapshot() {
+        return snapshot.get();
     }
+
     /**
-     * Calculates what the level should be given the score
+     * Handle what should happen when a particular block is clicked
      *
-     * @param score a {@link java.lang.Integer} object
+     * @param gameBlock the block that was clicked
      */
-    public void level(Integer score){
-        setCurrentLevel(score/1000);
+    public void blockClicked(GameBlock gameBlock) {
+        blockClicked(gameBlock.getX(), gameBlock.getY());
     }
 
     /**
-     * Initialise a new game and set up anything that needs to be done at the start
+     * Handle the player trying to play the current piece at the given x,y
+     *
+     * @param x column
+     * @param y row
      */
-    public void initialiseGame() {
-        logger.info("Initialising game");
-        timer = Executors.newSingleThreadScheduledExecutor();
-        timer.scheduleAtFixedRate(this::gameLoop, getTimerDelay(), getTimerDelay(), TimeUnit.MILLISECONDS);
-        nextPiece();
-        setCurrentLives(3);
-        setCurrentLevel(0);
-        setCurrentMultiplier(1);
-        setCurrentScore(0);
+    public void blockClicked(int x, int y) {
+        command(() -> place(x, y));
     }
 
     /**
-     * Handle what should happen when a particular block is clicked
+     * Play the current piece and restart the timer if it fits. Must be called on the command thread.
      *
-     * @param gameBlock the block that was clicked
+     * @param x column
+     * @param y row
      */
-    public void blockClicked(GameBlock gameBlock) {
-        //Get the position of this block
-        int x = gameBlock.getX();
-        int y = gameBlock.getY();
-
-        if(grid.canPlayPiece(currentPiece, x, y)){
-            //Can play the piece
-            logger.info("CURRENT LIVES: "+getCurrentLives());
+    private void place(int x, int y) {
+        if(engine.place(x, y)){
+            logger.info("CURRENT LIVES: " + engine.getLives());
             restartTimer();
-            grid.playPiece(currentPiece, x, y);
-            Multimedia.playAudio("place.wav");
-            piecesToPlay.set(0, piecesToPlay.get(1));
-            piecesToPlay.remove(1);
-            nextPiece();
-            afterPiece();
-
-        }
-        else{
-            //Cannot play piece
-            Multimedia.playAudio("fail.wav");
         }
     }
 
+    /**
+     * Make a whole move (swap and rotate as needed, then play the current piece), but only if the current and
+     * following pieces are still the ones given. Used for moves worked out from an earlier snapshot, which the timer
+     * may have made out of date.
+     *
+     * @param move the move to make
+     * @param current the current piece the move was worked out for
+     * @param following the following piece the move was worked out for
+     */
+    public void play(Placement move, GamePiece current, GamePiece following) {
+        command(() -> {
+            if(engine.getCurrentPiece() != current || engine.getFollowingPiece() != following) return;
+            if(move.isSwap()) engine.swap();
+            if(move.getRotation() != 0) engine.rotate(move.getRotation());
+            place(move.getX(), move.getY());
+        });
+    }
+
     /**
      * Handle what should happen when the next piece should be called upon
      *
@@ -338,22 +327,43 @@ public class Game {
     }
 
     /**
-     * Game ends when all lives are lost and the timer runs out
+     * Game ends when all lives are lost and the timer runs out. Called on the command thread.
      */
-    public void gameOver(){
-        timer.shutdown();
-        if (gameOverListener != null){
-            gameOverListener.gameOver();
-        }
+    private void gameOver(){
+        cancelTimer();
+        fireUi(() -> {
+            if (gameOverListener != null){
+                gameOverListener.gameOver();
+            }
+        });
     }
 
     /**
-     * Get the grid model inside this game representing the game state of the board
+     * Get the engine holding the rules and state of this game
+     *
+     * @return the game engine
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Get the replay of this game, which records every move the player has made
+     *
+     * @return the replay
+     */
+    public ReplayLog getReplayLog() {
+        return engine.getReplayLog();
+    }
+
+    /**
+     * Get the grid model inside this game representing the game state of the board. It is changed on the game's
+     * command thread, so other threads should use getSnapshot instead.
      *
      * @return game grid model
      */
     public Grid getGrid() {
-        return grid;
+        return engine.getGrid();
     }
 
     /**
@@ -380,8 +390,7 @@ public class Game {
      * @return an int
      */
     public int getTimerDelay(){
-        logger.info("This is what the time should be "+Math.max(2500, 12000-(500*getCurrentLevel())));
-        return Math.max(2500, 12000-(500*getCurrentLevel()));
+        return snapshot.get().getTimerDelay();
     }
     /**
      * Gets the timer delay in seconds
@@ -389,59 +398,72 @@ public class Game {
      * @return a float
      */
     public float getTimerDelayInSeconds() {
-        return (float) Math.max(2500, 12000 - (500 * getCurrentLevel()))/1000;
+        return (float) getTimerDelay()/1000;
     }
 
     /**
-     * Restarts the timer when a piece is played or a life is lost
+     * Restarts the timer when a piece is played. Called on the command thread.
      */
     private void restartTimer(){
-        shutDownTimer();
-        timer = Executors.newSingleThreadScheduledExecutor();
-        timer.scheduleAtFixedRate(this::gameLoop, getTimerDelay(), getTimerDelay(), TimeUnit.MILLISECONDS);
-        if (this.gameLoopListener != null){
-            gameLoopListener.setOnGameLoop(getCurrentLives());
+        armTimer();
+        int lives = engine.getLives();
+        fireUi(() -> {
+            if (this.gameLoopListener != null){
+                gameLoopListener.setOnGameLoop(lives);
+            }
+        });
+    }
+
+    /**
+     * Set the timer to run out after the delay for the current level, replacing any deadline already set. Called on
+     * the command thread.
+     */
+    private void armTimer(){
+        if(timeout != null) timeout.cancel(false);
+        long armedDeadline = GameClock.now() + TimeUnit.MILLISECONDS.toNanos(engine.getTimerDelay());
+        deadline = armedDeadline;
+        timeout = clock.runAt(() -> commands.execute(() -> gameLoop(armedDeadline)), armedDeadline);
+    }
+
+    /**
+     * Stop the timer. Called on the command thread.
+     */
+    private void cancelTimer(){
+        if(timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
         }
     }
 
     /**
-     * Shuts down the timer to close its thread
+     * Stops the timer. The shared clock keeps running for other games.
      */
     public void shutDownTimer(){
-        timer.shutdown();
+        commands.execute(this::cancelTimer);
     }
 
     /**
-     * Discards the current piece and generates a new one when a life is lost
+     * Get the time left before the current piece times out
+     *
+     * @return the time remaining in milliseconds
      */
-    private void discardCurrentPiece(){
-        logger.info("Discarding current piece {}", currentPiece);
-        var maxPieces = GamePiece.PIECES;
-        var randomPiece = random.nextInt(maxPieces);
-        logger.info("Picking random piece: {}", randomPiece);
-        var piece = GamePiece.createPiece(randomPiece);
-        piecesToPlay.remove(0);
-        piecesToPlay.add(0, piece);
-        currentPiece = piecesToPlay.get(0);
-        if (this.nextPieceListener != null){
-            nextPieceListener.nextPiece(this.currentPiece, this.followingPiece);
-        }
+    public long getTimeRemaining(){
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - GameClock.now()));
     }
 
     /**
-     * The gameLoop which reduces the lives when the timer reaches 0
+     * The gameLoop which reduces the lives when the timer reaches 0, then sets the timer again. Called on the command
+     * thread.
+     *
+     * @param armedDeadline the deadline this timeout was set for
      */
-    private void gameLoop(){
-        if (getCurrentLives()-1 < 0){
-            gameOver();
-        }
-        discardCurrentPiece();
-        setCurrentLives(getCurrentLives()-1);
-        logger.info("Reducing lives from {} to {}", getCurrentLives(), getCurrentLives()-1);
-        setCurrentMultiplier(1);
-        if (this.gameLoopListener != null){
-            gameLoopListener.setOnGameLoop(getCurrentLives());
-        }
+    private void gameLoop(long armedDeadline){
+        //The timer was reset just before this ran out, so this timeout no longer applies
+        if(timeout == null || deadline != armedDeadline) return;
+        timeout = null;
+        engine.tick();
+        if(!engine.isOver()) armTimer();
+        publish();
     }
 
     /**
@@ -467,12 +489,6 @@ public class Game {
      * @return a {@link java.lang.Integer} object
      */
     public Integer getCurrentLives(){return currentLives.get();}
-    /**
-     * Setter for the field currentLives
-     *
-     * @param lives a {@link java.lang.Integer} object
-     */
-    public void setCurrentLives(Integer lives){currentLives.set(lives);}
     /**
      * getCurrentLevelProperty
      *
@@ -487,14 +503,6 @@ public class Game {
      * @return a {@link java.lang.Integer} object
      */
     public Integer getCurrentLevel(){return currentLevel.get();}
-    /**
-     * Setter for the field currentLevel
-     *
-     * @param level a {@link java.lang.Integer} object
-     */
-    public void setCurrentLevel(Integer level){
-        currentLevel.set(level);
-    }
     /**
      * getCurrentMultiplierProperty
      *
@@ -511,14 +519,6 @@ public class Game {
     public Integer getCurrentMultiplier(){
         return currentMultiplier.get();
     }
-    /**
-     * Setter for the field currentMultiplier
-     *
-     * @param multiplier a {@link java.lang.Integer} object
-     */
-    public void setCurrentMultiplier(Integer multiplier){
-        currentMultiplier.set(multiplier);
-    }
     /**
      * getCurrentScoreProperty
      *
@@ -535,13 +535,110 @@ public class Game {
     public Integer getCurrentScore(){
         return currentScore.get();
     }
+
     /**
-     * Setter for the field currentScore
+     * Convert a mask of grid cells into the set of coordinates it covers, for passing to a LineClearedListener
      *
-     * @param score a {@link java.lang.Integer} object
+     * @param mask the cells, as created by the grid
+     * @return the coordinates of every cell in the mask
+     */
+    private Set<GameBlockCoordinate> toCoordinates(long[] mask){
+        Set<GameBlockCoordinate> coordinates = new HashSet<>();
+        for(int word = 0; word < mask.length; word++){
+            long bits = mask[word];
+            while(bits != 0){
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                coordinates.add(new GameBlockCoordinate(cell % cols, cell / cols));
+            }
+        }
+        return coordinates;
+    }
+
+    /**
+     * Receives the events of the engine on the command thread, playing sounds and passing events on to the UI
+     * listeners on the JavaFX thread. The properties are updated from snapshots instead.
      */
-    public void setCurrentScore(Integer score){
-        currentScore.set(score);
+    private class EngineListener implements GameEventListener {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void nextPiece(GamePiece piece, GamePiece followingPiece) {
+            logger.info("The next piece is: {}, the following piece is: {}", piece, followingPiece);
+            fireUi(() -> {
+                if (nextPieceListener != null){
+                    nextPieceListener.nextPiece(piece, followingPiece);
+                }
+            });
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void piecePlaced(GamePiece piece, int x, int y) {
+            Multimedia.playAudio("place.wav");
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void placementFailed(GamePiece piece, int x, int y) {
+            Multimedia.playAudio("fail.wav");
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void pieceRotated(GamePiece piece) {
+            Multimedia.playAudio("rotate.wav");
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void piecesSwapped(GamePiece piece, GamePiece followingPiece) {
+            Multimedia.playAudio("rotate.wav");
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void linesCleared(int lines, long[] mask) {
+            Multimedia.playAudio("clear.wav");
+            //Only build the coordinates if something is listening for them
+            var listener = lineClearedListener;
+            if(listener == null) return;
+            //The mask is reused by the engine, so turn it into coordinates now
+            var coordinates = toCoordinates(mask);
+            fireUi(() -> listener.lineCleared(coordinates));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void lifeLost(int lives) {
+            fireUi(() -> {
+                if (gameLoopListener != null){
+                    gameLoopListener.setOnGameLoop(lives);
+                }
+            });
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void gameOver() {
+            Game.this.gameOver();
+        }
     }
 
 
@@ -0,0 +1,113 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GameClock runs the timers of every Game on one long-lived daemon thread, so starting a game or resetting its
+ * timer never creates a thread.
+ *
+ * Deadlines are absolute System.nanoTime values, which never jump with the wall clock. Each deadline is a one-shot
+ * task whose handle is cancelled to reschedule it, and cancelled tasks are removed from the queue straight away, so
+ * many games can reset their timers constantly without the queue growing.
+ *
+ * @author Jesse Hardy
+ */
+public final class GameClock {
+
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(GameClock.class);
+
+    /**
+     * The clock shared by every game
+     */
+    private static final GameClock SHARED = new GameClock("GameClock");
+
+    /**
+     * The single thread running every timer
+     */
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Create a new clock with its own thread
+     *
+     * @param name the name of the clock's thread
+     */
+    public GameClock(String name) {
+        executor = new ScheduledThreadPoolExecutor(1, task -> {
+            var thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Get the clock shared by every game
+     *
+     * @return the shared clock
+     */
+    public static GameClock shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the current time of the clock
+     *
+     * @return the current time in nanoseconds, from System.nanoTime
+     */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Run a task once when a deadline is reached
+     *
+     * @param task the task to run
+     * @param deadlineNanos when to run it, as a System.nanoTime value
+     * @return the handle to cancel the task with
+     */
+    public ScheduledFuture<?> runAt(Runnable task, long deadlineNanos) {
+        return executor.schedule(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                //Don't let one game's failure stop the clock for the others
+                logger.error("Timer task failed", e);
+            }
+        }, deadlineNanos - now(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the executor behind this clock, to run short tasks on its thread
+     *
+     * @return the executor
+     */
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the number of timers waiting to run
+     *
+     * @return number of pending timers
+     */
+    public int getPendingCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stop the clock. Pending timers are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
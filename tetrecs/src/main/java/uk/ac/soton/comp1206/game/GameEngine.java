@@ -0,0 +1,415 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.GameEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The GameEngine holds the rules and state of a single game of TetrECS, without any JavaFX, audio or timers.
+ *
+ * It is driven entirely by calls to place, rotate, swap and tick, and reports what happens to a GameEventListener. This
+ * lets the same rules run in the UI (through Game), on a server, or in a batch of simulated games.
+ *
+ * @author Jesse Hardy
+ */
+public class GameEngine {
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(GameEngine.class);
+
+    /**
+     * A listener which ignores every event, used when none is set
+     */
+    private static final GameEventListener NO_LISTENER = new GameEventListener() {};
+
+    /**
+     * The number of lives at the start of a game
+     */
+    public static final int STARTING_LIVES = 3;
+
+    /**
+     * The seed this game's pieces are generated from
+     */
+    private final long seed;
+
+    /**
+     * Random for creating a new piece
+     */
+    private final Random random;
+
+    /**
+     * The grid model the game is played on
+     */
+    private final Grid grid;
+
+    /**
+     * Reusable mask of the cells to clear after each piece is played
+     */
+    private final long[] clearMask;
+
+    /**
+     * The listener receiving the events of this game
+     */
+    private GameEventListener listener = NO_LISTENER;
+
+    /**
+     * The piece to be played next
+     */
+    private GamePiece currentPiece;
+
+    /**
+     * The piece after the current piece
+     */
+    private GamePiece followingPiece;
+
+    /**
+     * The current score
+     */
+    private int score;
+
+    /**
+     * The current multiplier
+     */
+    private int multiplier;
+
+    /**
+     * The current level
+     */
+    private int level;
+
+    /**
+     * The current lives
+     */
+    private int lives;
+
+    /**
+     * Whether the game has ended
+     */
+    private boolean over;
+
+    /**
+     * The replay the commands given to this game are recorded to, if any
+     */
+    private ReplayLog replayLog;
+
+    /**
+     * Create a new game engine with the specified rows and columns and a random seed
+     *
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public GameEngine(int cols, int rows) {
+        this(cols, rows, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Create a new game engine with the specified rows and columns. Two engines with the same seed given the same
+     * commands will play out exactly the same game.
+     *
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed the seed to generate pieces from
+     */
+    public GameEngine(int cols, int rows, long seed) {
+        this.grid = new Grid(cols, rows);
+        this.clearMask = grid.createMask();
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Start recording every command given to this game into a new replay. Should be called before start.
+     *
+     * @return the replay being recorded to
+     */
+    public ReplayLog record() {
+        replayLog = new ReplayLog(grid.getCols(), grid.getRows(), seed);
+        return replayLog;
+    }
+
+    /**
+     * Set the listener to receive the events of this game
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(GameEventListener listener) {
+        this.listener = listener == null ? NO_LISTENER : listener;
+    }
+
+    /**
+     * Reset the stats and deal the first pieces
+     */
+    public void start() {
+        logger.debug("Starting game engine with seed {}", seed);
+        random.setSeed(seed);
+        grid.clear();
+        score = 0;
+        multiplier = 1;
+        level = 0;
+        lives = STARTING_LIVES;
+        over = false;
+        currentPiece = spawnPiece();
+        followingPiece = spawnPiece();
+        listener.nextPiece(currentPiece, followingPiece);
+        listener.statsChanged(score, multiplier, level, lives);
+    }
+
+    /**
+     * Try to play the current piece centred at the given x,y. If it fits, the following piece becomes the current
+     * piece and any full lines are cleared.
+     *
+     * @param x column
+     * @param y row
+     * @return whether the piece was played
+     */
+    public boolean place(int x, int y) {
+        if(over) return false;
+        if(replayLog != null) replayLog.recordPlace(x, y);
+
+        if(!grid.canPlayPiece(currentPiece, x, y)) {
+            listener.placementFailed(currentPiece, x, y);
+            return false;
+        }
+
+        var played = currentPiece;
+        grid.playPiece(played, x, y);
+        listener.piecePlaced(played, x, y);
+
+        currentPiece = followingPiece;
+        followingPiece = spawnPiece();
+        listener.nextPiece(currentPiece, followingPiece);
+
+        afterPiece();
+        return true;
+    }
+
+    /**
+     * Check whether the current piece would fit centred at the given x,y
+     *
+     * @param x column
+     * @param y row
+     * @return whether the piece can be played
+     */
+    public boolean canPlace(int x, int y) {
+        return grid.canPlayPiece(currentPiece, x, y);
+    }
+
+    /**
+     * Get every legal move for the current piece and, after swapping, the following piece
+     *
+     * @return the legal moves, current piece first
+     */
+    public List<Placement> getLegalPlacements() {
+        List<Placement> placements = new ArrayList<>();
+        var index = grid.getPlacementIndex();
+        index.collectLegal(currentPiece, false, placements);
+        index.collectLegal(followingPiece, true, placements);
+        return placements;
+    }
+
+    /**
+     * Check whether either the current or the following piece can be played anywhere
+     *
+     * @return whether there is a legal move
+     */
+    public boolean hasLegalMove() {
+        var index = grid.getPlacementIndex();
+        return index.hasLegalPlacement(currentPiece) || index.hasLegalPlacement(followingPiece);
+    }
+
+    /**
+     * Rotates the current piece given a number of rotations
+     *
+     * @param rotations number of clockwise rotations
+     */
+    public void rotate(int rotations) {
+        if(over) return;
+        if(replayLog != null) replayLog.recordRotate(rotations);
+        currentPiece = currentPiece.rotated(rotations);
+        listener.pieceRotated(currentPiece);
+        listener.nextPiece(currentPiece, followingPiece);
+    }
+
+    /**
+     * Swaps the current piece with the following piece
+     */
+    public void swap() {
+        if(over) return;
+        if(replayLog != null) replayLog.recordSwap();
+        var piece = currentPiece;
+        currentPiece = followingPiece;
+        followingPiece = piece;
+        listener.piecesSwapped(currentPiece, followingPiece);
+        listener.nextPiece(currentPiece, followingPiece);
+    }
+
+    /**
+     * Handle the timer running out. A life is lost and the current piece is replaced, or the game ends if there are
+     * no lives left.
+     */
+    public void tick() {
+        if(over) return;
+        if(replayLog != null) replayLog.recordTimeout();
+
+        if(lives == 0) {
+            over = true;
+            logger.debug("Game over with a score of {}", score);
+            listener.gameOver();
+            return;
+        }
+
+        logger.debug("Discarding current piece {}", currentPiece);
+        currentPiece = spawnPiece();
+        lives--;
+        multiplier = 1;
+        logger.debug("Reducing lives to {}", lives);
+        listener.nextPiece(currentPiece, followingPiece);
+        listener.statsChanged(score, multiplier, level, lives);
+        listener.lifeLost(lives);
+    }
+
+    /**
+     * Clear any full lines after a piece is played and update the score, multiplier and level
+     */
+    private void afterPiece() {
+        int linesCleared = grid.findFullLines(clearMask);
+        int blocksCleared = 0;
+        if(linesCleared > 0) {
+            logger.trace("Clearing {} lines", linesCleared);
+            listener.linesCleared(linesCleared, clearMask);
+            blocksCleared = grid.clearCells(clearMask);
+        }
+
+        score += scoreFor(linesCleared, blocksCleared, multiplier);
+        multiplier = linesCleared > 0 ? multiplier + 1 : 1;
+        level = score / 1000;
+        if(replayLog != null) replayLog.recordScore(score);
+        listener.statsChanged(score, multiplier, level, lives);
+    }
+
+    /**
+     * Work out the points scored for clearing lines
+     *
+     * @param lines the number of lines cleared
+     * @param blocks the number of blocks cleared
+     * @param multiplier the current multiplier
+     * @return the points scored
+     */
+    public static int scoreFor(int lines, int blocks, int multiplier) {
+        return lines * blocks * 10 * multiplier;
+    }
+
+    /**
+     * Create a new random piece
+     *
+     * @return the new piece
+     */
+    private GamePiece spawnPiece() {
+        return GamePiece.createPiece(random.nextInt(GamePiece.PIECES));
+    }
+
+    /**
+     * Get the time the player has to play a piece at the current level
+     *
+     * @return the delay in milliseconds
+     */
+    public int getTimerDelay() {
+        return Math.max(2500, 12000 - (500 * level));
+    }
+
+    /**
+     * Get the seed this game's pieces are generated from
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the replay this game is being recorded to
+     *
+     * @return the replay, or null if the game is not being recorded
+     */
+    public ReplayLog getReplayLog() {
+        return replayLog;
+    }
+
+    /**
+     * Get the grid model the game is played on
+     *
+     * @return game grid model
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the piece to be played next
+     *
+     * @return the current piece
+     */
+    public GamePiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    /**
+     * Get the piece after the current piece
+     *
+     * @return the following piece
+     */
+    public GamePiece getFollowingPiece() {
+        return followingPiece;
+    }
+
+    /**
+     * Get the current score
+     *
+     * @return score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the current multiplier
+     *
+     * @return multiplier
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Get the current level
+     *
+     * @return level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the current lives
+     *
+     * @return lives
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * Check whether the game has ended
+     *
+     * @return whether the game is over
+     */
+    public boolean isOver() {
+        return over;
+    }
+}
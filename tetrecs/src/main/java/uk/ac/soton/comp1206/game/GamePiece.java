@@ -1,8 +1,15 @@
 package uk.ac.soton.comp1206.game;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 /**
  * Instances of GamePiece Represents the model of a specific Game Piece with its block makeup.
  *
+ * Every orientation of every piece is built once into a static, immutable table. A GamePiece is a lightweight handle
+ * to one entry of that table (a piece number and a rotation), so spawning a piece allocates nothing and rotating it
+ * just moves to another entry. Orientations which look the same (such as every rotation of the Plus) share an entry.
+ *
  * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as specified by its
  * number.
  *
@@ -16,158 +23,240 @@ public class GamePiece {
     public static final int PIECES = 15;
 
     /**
-     * The 2D grid representation of the shape of this piece
+     * The name of each piece, indexed by piece number
      */
-    private int[][] blocks;
+    private static final String[] NAMES = {
+            "Line", "C", "Plus", "Dot", "Square", "L", "J", "S", "Z", "T", "X", "Corner", "Inverse Corner",
+            "Diagonal", "Double"
+    };
 
     /**
-     * The value of this piece
+     * The unrotated shape of each piece, indexed by piece number
      */
-    private final int value;
+    private static final int[][][] SHAPES = {
+            {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}}, //Line
+            {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}}, //C
+            {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}}, //Plus
+            {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}}, //Dot
+            {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}}, //Square
+            {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}}, //L
+            {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}}, //J
+            {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}}, //S
+            {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}}, //Z
+            {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}}, //T
+            {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}}, //X
+            {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}}, //Corner
+            {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}}, //Inverse Corner
+            {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}}, //Diagonal
+            {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}}  //Double
+    };
 
     /**
-     * The name of this piece
+     * Every distinct orientation of every piece, indexed by piece number then rotation
      */
-    private final String name;
+    private static final GamePiece[][] TABLE = new GamePiece[PIECES][];
 
     /**
-     * Create a new GamePiece of the specified piece number
-     *
-     * @param piece piece number
-     * @return the created GamePiece
+     * Every distinct orientation of every piece, indexed by orientation number
      */
-    public static GamePiece createPiece(int piece) {
-        switch (piece) {
-            //Line
-            case 0 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Line", blocks, 1);
-            }
-
-            //C
-            case 1 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}};
-                return new GamePiece("C", blocks, 2);
-            }
-
-            //Plus
-            case 2 -> {
-                int[][] blocks = {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}};
-                return new GamePiece("Plus", blocks, 3);
-            }
-
-            //Dot
-            case 3 -> {
-                int[][] blocks = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Dot", blocks, 4);
-            }
-
-            //Square
-            case 4 -> {
-                int[][] blocks = {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Square", blocks, 5);
-            }
-
-            //L
-            case 5 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}};
-                return new GamePiece("L", blocks, 6);
+    private static final GamePiece[] ORIENTATIONS;
+
+    static {
+        var all = new ArrayList<GamePiece>();
+        for(int piece = 0; piece < PIECES; piece++) {
+            var orientations = new ArrayList<int[][]>(4);
+            int[][] shape = SHAPES[piece];
+            //Keep rotating until we get back to the original shape, so symmetric pieces only store each look once
+            do {
+                orientations.add(shape);
+                shape = rotateShape(shape);
+            } while(!Arrays.deepEquals(shape, SHAPES[piece]));
+
+            TABLE[piece] = new GamePiece[orientations.size()];
+            for(int rotation = 0; rotation < orientations.size(); rotation++) {
+                TABLE[piece][rotation] = new GamePiece(piece, rotation, all.size(), orientations.get(rotation));
+                all.add(TABLE[piece][rotation]);
             }
+        }
+        ORIENTATIONS = all.toArray(new GamePiece[0]);
+    }
 
-            //J
-            case 6 -> {
-                int[][] blocks = {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("J", blocks, 7);
-            }
+    /**
+     * The piece number of this piece
+     */
+    private final int piece;
 
-            //S
-            case 7 -> {
-                int[][] blocks = {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}};
-                return new GamePiece("S", blocks, 8);
-            }
+    /**
+     * Which of the distinct orientations of this piece this is
+     */
+    private final int rotation;
 
-            //Z
-            case 8 -> {
-                int[][] blocks = {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Z", blocks, 9);
-            }
+    /**
+     * The number of this orientation out of every orientation of every piece
+     */
+    private final int orientation;
 
-            //T
-            case 9 -> {
-                int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("T", blocks, 10);
-            }
+    /**
+     * The 2D grid representation of the shape of this piece
+     */
+    private final int[][] blocks;
 
-            //X
-            case 10 -> {
-                int[][] blocks = {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}};
-                return new GamePiece("X", blocks, 11);
-            }
+    /**
+     * The x offset of each block from the centre of the piece
+     */
+    private final int[] blockX;
 
-            //Corner
-            case 11 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("Corner", blocks, 12);
-            }
+    /**
+     * The y offset of each block from the centre of the piece
+     */
+    private final int[] blockY;
 
-            //Inverse Corner
-            case 12 -> {
-                int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Inverse Corner", blocks, 13);
-            }
+    /**
+     * The value of this piece
+     */
+    private final int value;
 
-            //Diagonal
-            case 13 -> {
-                int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
-                return new GamePiece("Diagonal", blocks, 14);
-            }
+    /**
+     * The name of this piece
+     */
+    private final String name;
 
-            //Double
-            case 14 -> {
-                int[][] blocks = {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Double", blocks, 15);
-            }
+    /**
+     * Get the GamePiece of the specified piece number
+     *
+     * @param piece piece number
+     * @return the created GamePiece
+     */
+    public static GamePiece createPiece(int piece) {
+        if(piece < 0 || piece >= PIECES) {
+            //Not a valid piece number
+            throw new IndexOutOfBoundsException("No such piece: " + piece);
         }
-
-        //Not a valid piece number
-        throw new IndexOutOfBoundsException("No such piece: " + piece);
+        return TABLE[piece][0];
     }
 
     /**
-     * Create a new GamePiece of the specified piece number and rotation
+     * Get the GamePiece of the specified piece number and rotation
      *
      * @param piece piece number
      * @param rotation number of times to rotate
      * @return the created GamePiece
      */
     public static GamePiece createPiece(int piece, int rotation) {
-        var newPiece = createPiece(piece);
-
-        newPiece.rotate(rotation);
-        return newPiece;
+        return createPiece(piece).rotated(rotation);
     }
 
     /**
-     * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only via the
-     * factory.
-     * @param name name of the piece
-     * @param blocks block makeup of the piece
-     * @param value the value of this piece
+     * Create a new entry in the piece table. Should not be called directly, only when building the table.
+     *
+     * @param piece the piece number
+     * @param rotation which distinct orientation this is
+     * @param orientation the number of this orientation out of every orientation of every piece
+     * @param shape block makeup of the piece, with 1 for each block
      */
-    private GamePiece(String name, int[][] blocks, int value) {
-        this.name = name;
-        this.blocks = blocks;
-        this.value = value;
+    private GamePiece(int piece, int rotation, int orientation, int[][] shape) {
+        this.piece = piece;
+        this.rotation = rotation;
+        this.orientation = orientation;
+        this.name = NAMES[piece];
+        this.value = piece + 1;
 
         //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
+        this.blocks = new int[3][3];
+        int count = 0;
+        for(int x = 0; x < shape.length; x++) {
+            for (int y = 0; y < shape[x].length; y++) {
+                if(shape[x][y] == 0) continue;
+                blocks[x][y] = value;
+                count++;
+            }
+        }
+
+        //Store the offset of each block from the centre, for fast placement checks
+        this.blockX = new int[count];
+        this.blockY = new int[count];
+        int block = 0;
         for(int x = 0; x < blocks.length; x++) {
             for (int y = 0; y < blocks[x].length; y++) {
                 if(blocks[x][y] == 0) continue;
-                blocks[x][y] = value;
+                blockX[block] = x - 1;
+                blockY[block] = y - 1;
+                block++;
             }
         }
     }
 
+    /**
+     * Get the number of distinct orientations across every piece
+     *
+     * @return number of orientations
+     */
+    public static int getOrientationCount() {
+        return ORIENTATIONS.length;
+    }
+
+    /**
+     * Get a GamePiece by its orientation number
+     *
+     * @param orientation orientation number, from 0 to getOrientationCount() - 1
+     * @return the GamePiece in that orientation
+     */
+    public static GamePiece fromOrientation(int orientation) {
+        return ORIENTATIONS[orientation];
+    }
+
+    /**
+     * Rotate a 3x3 shape exactly once clockwise
+     *
+     * @param shape the shape to rotate
+     * @return a new, rotated shape
+     */
+    private static int[][] rotateShape(int[][] shape) {
+        int[][] rotated = new int[3][3];
+        for(int x = 0; x < 3; x++) {
+            for(int y = 0; y < 3; y++) {
+                rotated[2 - y][x] = shape[x][y];
+            }
+        }
+        return rotated;
+    }
+
+    /**
+     * Get the piece number of this piece
+     *
+     * @return piece number
+     */
+    public int getPiece() {
+        return piece;
+    }
+
+    /**
+     * Get which distinct orientation of the piece this is
+     *
+     * @return rotation index, from 0 to getRotations() - 1
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get the number of this orientation out of every orientation of every piece
+     *
+     * @return orientation number, from 0 to getOrientationCount() - 1
+     */
+    public int getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Get the number of distinct orientations this piece has
+     *
+     * @return number of rotations (1, 2 or 4)
+     */
+    public int getRotations() {
+        return TABLE[piece].length;
+    }
+
     /**
      * Get the value of this piece
      *
@@ -178,43 +267,76 @@ public class GamePiece {
     }
 
     /**
-     * Get the block makeup of this piece
+     * Get a copy of the block makeup of this piece
      *
      * @return 2D grid of the blocks representing the piece shape
      */
     public int[][] getBlocks() {
-        return blocks;
+        int[][] copy = new int[blocks.length][];
+        for(int x = 0; x < blocks.length; x++) {
+            copy[x] = blocks[x].clone();
+        }
+        return copy;
     }
 
     /**
-     * Rotate this piece the given number of rotations
+     * Get the value of a single block of this piece
      *
-     * @param rotations number of rotations
+     * @param x column in the 3x3 piece grid
+     * @param y row in the 3x3 piece grid
+     * @return the piece value if there is a block there, otherwise 0
      */
-    public void rotate(int rotations) {
-        for(int rotated = 0; rotated < rotations; rotated ++) {
-            rotate();
-        }
+    public int getBlock(int x, int y) {
+        return blocks[x][y];
     }
 
     /**
-     * Rotate this piece exactly once by rotating it's 3x3 grid
+     * Get the number of blocks making up this piece
+     *
+     * @return number of blocks
      */
-    public void rotate() {
-        int[][] rotated = new int[blocks.length][blocks[0].length];
-        rotated[2][0] = blocks[0][0];
-        rotated[1][0] = blocks[0][1];
-        rotated[0][0] = blocks[0][2];
+    public int getBlockCount() {
+        return blockX.length;
+    }
 
-        rotated[2][1] = blocks[1][0];
-        rotated[1][1] = blocks[1][1];
-        rotated[0][1] = blocks[1][2];
+    /**
+     * Get the x offset of a block from the centre of this piece
+     *
+     * @param block the block index, from 0 to getBlockCount() - 1
+     * @return x offset, from -1 to 1
+     */
+    public int getBlockX(int block) {
+        return blockX[block];
+    }
 
-        rotated[2][2] = blocks[2][0];
-        rotated[1][2] = blocks[2][1];
-        rotated[0][2] = blocks[2][2];
+    /**
+     * Get the y offset of a block from the centre of this piece
+     *
+     * @param block the block index, from 0 to getBlockCount() - 1
+     * @return y offset, from -1 to 1
+     */
+    public int getBlockY(int block) {
+        return blockY[block];
+    }
 
-        blocks = rotated;
+    /**
+     * Get this piece rotated the given number of rotations
+     *
+     * @param rotations number of clockwise rotations
+     * @return the rotated piece
+     */
+    public GamePiece rotated(int rotations) {
+        var orientations = TABLE[piece];
+        return orientations[Math.floorMod(rotation + rotations, orientations.length)];
+    }
+
+    /**
+     * Get this piece rotated exactly once
+     *
+     * @return the rotated piece
+     */
+    public GamePiece rotated() {
+        return rotated(1);
     }
 
 
@@ -0,0 +1,153 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A GameSnapshot is an unchanging copy of the state of a game at one moment, taken on the game's command thread and
+ * handed to the user interface, so the interface never reads the game while it is being changed.
+ *
+ * @author Jesse Hardy
+ */
+public class GameSnapshot {
+
+    /**
+     * A copy of the board
+     */
+    private final Grid grid;
+
+    /**
+     * The current piece
+     */
+    private final GamePiece currentPiece;
+
+    /**
+     * The following piece
+     */
+    private final GamePiece followingPiece;
+
+    /**
+     * The score
+     */
+    private final int score;
+
+    /**
+     * The multiplier
+     */
+    private final int multiplier;
+
+    /**
+     * The level
+     */
+    private final int level;
+
+    /**
+     * The lives left
+     */
+    private final int lives;
+
+    /**
+     * Whether the game has ended
+     */
+    private final boolean over;
+
+    /**
+     * The time allowed to play a piece, in milliseconds
+     */
+    private final int timerDelay;
+
+    /**
+     * Take a snapshot of an engine. Must be called on the thread changing the engine.
+     *
+     * @param engine the engine
+     */
+    GameSnapshot(GameEngine engine) {
+        this.grid = engine.getGrid().copy();
+        this.currentPiece = engine.getCurrentPiece();
+        this.followingPiece = engine.getFollowingPiece();
+        this.score = engine.getScore();
+        this.multiplier = engine.getMultiplier();
+        this.level = engine.getLevel();
+        this.lives = engine.getLives();
+        this.over = engine.isOver();
+        this.timerDelay = engine.getTimerDelay();
+    }
+
+    /**
+     * Get a copy of the board. It must not be changed, so copy it again before trying moves on it.
+     *
+     * @return the board
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the current piece
+     *
+     * @return the current piece
+     */
+    public GamePiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    /**
+     * Get the following piece
+     *
+     * @return the following piece
+     */
+    public GamePiece getFollowingPiece() {
+        return followingPiece;
+    }
+
+    /**
+     * Get the score
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the multiplier
+     *
+     * @return the multiplier
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Get the level
+     *
+     * @return the level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the lives left
+     *
+     * @return the lives
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * Get whether the game has ended
+     *
+     * @return whether the game is over
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * Get the time allowed to play a piece at this level
+     *
+     * @return the delay in milliseconds
+     */
+    public int getTimerDelay() {
+        return timerDelay;
+    }
+}
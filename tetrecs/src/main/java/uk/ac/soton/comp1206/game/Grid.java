@@ -1,21 +1,22 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.CellUpdatedListener;
+
+import java.util.Arrays;
 
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a set of Integer values arranged in a 2D
  * arrow, with rows and columns.
  *
- * Each value inside the Grid is an IntegerProperty can be bound to enable modification and display of the contents of
- * the grid.
+ * Internally the Grid is stored as an occupancy bitboard (one bit per cell, packed row-major into 64-bit words) plus a
+ * compact array of colour values, so the game rules never touch any JavaFX objects.
  *
  * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
  *
- * The Grid should be linked to a GameBoard for its display.
+ * The Grid should be linked to a GameBoard for its display, which observes it through a GridPropertyView.
  *
  * @author Jesse Hardy
  */
@@ -35,9 +36,44 @@ public class Grid {
     private final int rows;
 
     /**
-     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+     * Occupancy bitboard. Bit (y * cols + x) is set when the cell at x,y holds a block.
+     */
+    private final long[] occupancy;
+
+    /**
+     * The colour value held in each cell, indexed by (y * cols + x). 0 is empty.
+     */
+    private final byte[] colours;
+
+    /**
+     * Precomputed bitboard masks covering every cell of each row
+     */
+    private final long[][] rowMasks;
+
+    /**
+     * Precomputed bitboard masks covering every cell of each column
+     */
+    private final long[][] colMasks;
+
+    /**
+     * Zobrist hash of the colours of every cell, kept up to date as cells change
+     */
+    private long hash;
+
+    /**
+     * Zobrist hash of which cells are occupied, ignoring their colours
      */
-    private final SimpleIntegerProperty[][] grid;
+    private long occupancyHash;
+
+    /**
+     * The listener to call when the value of a cell changes
+     */
+    private CellUpdatedListener cellUpdatedListener;
+
+    /**
+     * Index of the legal placements on this grid, created the first time it is asked for
+     */
+    private PlacementIndex placementIndex;
 
     /**
      * Create a new Grid with the specified number of columns and rows and initialise them
@@ -49,26 +85,77 @@ public class Grid {
         this.cols = cols;
         this.rows = rows;
 
-        //Create the grid itself
-        grid = new SimpleIntegerProperty[cols][rows];
+        //Create the grid itself, every cell starts empty
+        occupancy = new long[(cols * rows + 63) >>> 6];
+        colours = new byte[cols * rows];
 
-        //Add a SimpleIntegerProperty to every block in the grid
+        //Precompute the masks used to detect full lines
+        rowMasks = new long[rows][occupancy.length];
+        colMasks = new long[cols][occupancy.length];
         for(var y = 0; y < rows; y++) {
             for(var x = 0; x < cols; x++) {
-                grid[x][y] = new SimpleIntegerProperty(0);
+                int cell = y * cols + x;
+                rowMasks[y][cell >>> 6] |= 1L << cell;
+                colMasks[x][cell >>> 6] |= 1L << cell;
             }
         }
     }
 
     /**
-     * Get the Integer property contained inside the grid at a given row and column index. Can be used for binding.
+     * Create a copy of another Grid, sharing its line masks. The copy has no listener or placement index.
      *
-     * @param x column
-     * @param y row
-     * @return the IntegerProperty at the given x and y in this grid
+     * @param other the grid to copy
+     */
+    private Grid(Grid other) {
+        this.cols = other.cols;
+        this.rows = other.rows;
+        this.occupancy = other.occupancy.clone();
+        this.colours = other.colours.clone();
+        this.rowMasks = other.rowMasks;
+        this.colMasks = other.colMasks;
+        this.hash = other.hash;
+        this.occupancyHash = other.occupancyHash;
+    }
+
+    /**
+     * Create a copy of this grid's cells, for trying out moves without changing the game. The copy does not notify
+     * this grid's listener.
+     *
+     * @return the new grid
+     */
+    public Grid copy() {
+        return new Grid(this);
+    }
+
+    /**
+     * Create an empty mask the same size as this grid's bitboard, for use with findFullLines and clearCells
+     *
+     * @return a new empty mask
+     */
+    public long[] createMask() {
+        return new long[occupancy.length];
+    }
+
+    /**
+     * Set the listener to call whenever a cell in this grid changes value. Used to attach a display to the grid.
+     *
+     * @param listener listener to add
      */
-    public IntegerProperty getGridProperty(int x, int y) {
-        return grid[x][y];
+    public void setOnCellUpdated(CellUpdatedListener listener) {
+        this.cellUpdatedListener = listener;
+    }
+
+    /**
+     * Get the index of every legal placement on this grid. The index is built the first time it is asked for, then
+     * kept up to date as cells change.
+     *
+     * @return the placement index
+     */
+    public PlacementIndex getPlacementIndex() {
+        if(placementIndex == null) {
+            placementIndex = new PlacementIndex(this);
+        }
+        return placementIndex;
     }
 
     /**
@@ -79,7 +166,39 @@ public class Grid {
      * @param value the new value
      */
     public void set(int x, int y, int value) {
-        grid[x][y].set(value);
+        if(x < 0 || x >= cols || y < 0 || y >= rows) {
+            throw new ArrayIndexOutOfBoundsException("No such cell: " + x + ", " + y);
+        }
+        int cell = y * cols + x;
+        if(colours[cell] == value) return;
+
+        boolean wasOccupied = (occupancy[cell >>> 6] & (1L << cell)) != 0;
+        hash ^= Zobrist.cell(cell, colours[cell]) ^ Zobrist.cell(cell, value);
+        colours[cell] = (byte) value;
+        if(value > 0) {
+            occupancy[cell >>> 6] |= 1L << cell;
+        } else {
+            occupancy[cell >>> 6] &= ~(1L << cell);
+        }
+        if(wasOccupied != (value > 0)) {
+            occupancyHash ^= Zobrist.cell(cell, 1);
+            if(placementIndex != null) placementIndex.cellChanged(cell, value > 0);
+        }
+
+        if(cellUpdatedListener != null) {
+            cellUpdatedListener.cellUpdated(x, y, value);
+        }
+    }
+
+    /**
+     * Empty every cell in the grid
+     */
+    public void clear() {
+        for(var y = 0; y < rows; y++) {
+            for(var x = 0; x < cols; x++) {
+                set(x, y, 0);
+            }
+        }
     }
 
     /**
@@ -91,20 +210,13 @@ public class Grid {
      * @return whether the piece can be played
      */
     public boolean canPlayPiece(GamePiece piece, int placeX, int placeY){
-        logger.info("Checking if we can play the piece {} at {}, {}", piece, placeX, placeY);
-        int[][] blocks = piece.getBlocks();
-        for(int x=0; x<blocks.length; x++){
-            for(int y=0; y< blocks.length; y++){
-                if (blocks[x][y] > 0) {
-                    var gridValue = get(placeX + x-1, placeY + y-1);
-                    if(gridValue !=0){
-                        logger.info("Unable to place piece, conflict at {}, {}", placeX+x-1, placeY+y-1);
-                        return false;
-                    }
-
-                }
+        for(int block = 0; block < piece.getBlockCount(); block++){
+            int x = placeX + piece.getBlockX(block);
+            int y = placeY + piece.getBlockY(block);
+            if(isBlocked(x, y)){
+                logger.trace("Unable to place piece {}, conflict at {}, {}", piece, x, y);
+                return false;
             }
-
         }
         return true;
     }
@@ -117,18 +229,10 @@ public class Grid {
      * @param placeY the y-coordinate
      */
     public void playPiece(GamePiece piece, int placeX, int placeY){
-        logger.info("Playing the piece {} at {}, {}", piece, placeX, placeY);
+        logger.trace("Playing the piece {} at {}, {}", piece, placeX, placeY);
         int colour = piece.getValue();
-        int[][] blocks = piece.getBlocks();
-
-        for(int x=0; x<blocks.length; x++){
-            for(int y=0; y<blocks.length; y++){
-                if (blocks[x][y] > 0) {
-                    set(placeX + x-1, placeY + y-1, colour);
-
-                }
-            }
-
+        for(int block = 0; block < piece.getBlockCount(); block++){
+            set(placeX + piece.getBlockX(block), placeY + piece.getBlockY(block), colour);
         }
     }
 
@@ -138,11 +242,9 @@ public class Grid {
      * @param piece a {@link uk.ac.soton.comp1206.game.GamePiece} object
      */
     public void insertPiece(GamePiece piece){
-        var blocks = piece.getBlocks();
-        for(int x=0; x<piece.getBlocks().length; x++){
-            for(int y=0; y<piece.getBlocks().length; y++){
-                int value = blocks[x][y];
-                this.grid[x][y].set(value);
+        for(int x=0; x<3; x++){
+            for(int y=0; y<3; y++){
+                set(x, y, piece.getBlock(x, y));
             }
         }
     }
@@ -152,16 +254,137 @@ public class Grid {
      *
      * @param x column
      * @param y row
-     * @return the value
+     * @return the value, or -1 if there is no such cell
      */
     public int get(int x, int y) {
-        try {
-            //Get the value held in the property at the x and y index provided
-            return grid[x][y].get();
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if(x < 0 || x >= cols || y < 0 || y >= rows) {
             //No such index
             return -1;
         }
+        return colours[y * cols + x];
+    }
+
+    /**
+     * Check whether the cell at the given x and y holds a block
+     *
+     * @param x column
+     * @param y row
+     * @return whether the cell is occupied
+     */
+    public boolean isOccupied(int x, int y) {
+        int cell = y * cols + x;
+        return (occupancy[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Check whether a block cannot go at the given x and y, either because it is off the grid or already occupied
+     *
+     * @param x column
+     * @param y row
+     * @return whether the cell is blocked
+     */
+    private boolean isBlocked(int x, int y) {
+        return x < 0 || x >= cols || y < 0 || y >= rows || isOccupied(x, y);
+    }
+
+    /**
+     * Find every full row and column in the grid. The cells belonging to them are written into the given mask, which
+     * is cleared first so it can be reused between calls.
+     *
+     * @param mask mask to fill with the cells to clear, created by createMask
+     * @return the number of full lines found
+     */
+    public int findFullLines(long[] mask) {
+        Arrays.fill(mask, 0L);
+        int lines = 0;
+        lines += collectFullLines(rowMasks, mask);
+        lines += collectFullLines(colMasks, mask);
+        return lines;
+    }
+
+    /**
+     * Add the cells of each full line out of the given set of line masks to the mask
+     *
+     * @param lineMasks the row or column masks to check
+     * @param mask mask to add the cells of full lines to
+     * @return the number of full lines found
+     */
+    private int collectFullLines(long[][] lineMasks, long[] mask) {
+        int lines = 0;
+        for(long[] line : lineMasks) {
+            if(isFull(line)) {
+                for(int word = 0; word < mask.length; word++) {
+                    mask[word] |= line[word];
+                }
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Check whether every cell in the given mask is occupied
+     *
+     * @param line the mask to check
+     * @return whether the mask is fully occupied
+     */
+    private boolean isFull(long[] line) {
+        for(int word = 0; word < line.length; word++) {
+            if((occupancy[word] & line[word]) != line[word]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Empty every cell set in the given mask
+     *
+     * @param mask the cells to clear, created by createMask
+     * @return the number of blocks that were cleared
+     */
+    public int clearCells(long[] mask) {
+        int cleared = 0;
+        for(int word = 0; word < mask.length; word++) {
+            long bits = mask[word] & occupancy[word];
+            while(bits != 0) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                set(cell % cols, cell / cols, 0);
+                cleared++;
+            }
+        }
+        return cleared;
+    }
+
+    /**
+     * Get the Zobrist hash of the grid, which depends on the colour in every cell. Equal grids have equal hashes.
+     *
+     * @return the hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Get the Zobrist hash of which cells are occupied, ignoring their colours. Used where only the shape of the
+     * board matters, such as when searching for moves.
+     *
+     * @return the occupancy hash
+     */
+    public long getOccupancyHash() {
+        return occupancyHash;
+    }
+
+    /**
+     * Get the number of occupied cells in the grid
+     *
+     * @return number of blocks on the grid
+     */
+    public int countBlocks() {
+        int count = 0;
+        for(long word : occupancy) {
+            count += Long.bitCount(word);
+        }
+        return count;
     }
 
     /**
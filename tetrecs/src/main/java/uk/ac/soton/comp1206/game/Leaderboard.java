@@ -0,0 +1,447 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.util.Pair;
+import uk.ac.soton.comp1206.event.LeaderboardListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Leaderboard keeps the best scores up to a fixed number of entries, highest first. Equal scores keep the order they
+ * were added in, so an older score stays above a newer one.
+ *
+ * The entries are held in a treap, a binary search tree kept balanced by random priorities, built from parallel
+ * primitive arrays so scores are compared without boxing. Each node knows the size of its subtree, so adding or
+ * removing an entry, finding the entry at a rank and working out the rank a score would get all take O(log n), without
+ * sorting.
+ *
+ * Changes are passed to the listener one entry at a time, so a view only has to update the rows that changed.
+ *
+ * @author Jesse Hardy
+ */
+public class Leaderboard {
+
+    /**
+     * Marks a missing child
+     */
+    private static final int NIL = -1;
+
+    /**
+     * The most entries kept
+     */
+    private final int capacity;
+
+    /**
+     * The score at each node
+     */
+    private final int[] scores;
+
+    /**
+     * The order each node was added in, which breaks ties between equal scores
+     */
+    private final long[] order;
+
+    /**
+     * The name at each node
+     */
+    private final String[] names;
+
+    /**
+     * The random priority of each node. A parent's priority is never lower than its children's.
+     */
+    private final int[] priorities;
+
+    /**
+     * The left child of each node, holding the entries ranked above it
+     */
+    private final int[] left;
+
+    /**
+     * The right child of each node, holding the entries ranked below it
+     */
+    private final int[] right;
+
+    /**
+     * The number of nodes in the subtree under each node, including itself
+     */
+    private final int[] sizes;
+
+    /**
+     * The root node
+     */
+    private int root = NIL;
+
+    /**
+     * Unused nodes, linked through the right array
+     */
+    private int free;
+
+    /**
+     * How many entries have ever been added, used to order ties
+     */
+    private long added;
+
+    /**
+     * State of the generator for node priorities
+     */
+    private int seed = 0x9E3779B9;
+
+    /**
+     * Told about every change
+     */
+    private LeaderboardListener listener;
+
+    /**
+     * Create an empty leaderboard
+     *
+     * @param capacity the most entries to keep
+     */
+    public Leaderboard(int capacity) {
+        if(capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        this.capacity = capacity;
+        scores = new int[capacity];
+        order = new long[capacity];
+        names = new String[capacity];
+        priorities = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        sizes = new int[capacity];
+        freeAll();
+    }
+
+    /**
+     * Set the listener to be told about changes
+     *
+     * @param listener the listener, or null for none
+     */
+    public synchronized void setOnChange(LeaderboardListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the most entries kept
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of entries
+     *
+     * @return the size
+     */
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /**
+     * Add a score, if it is good enough to be kept. When the leaderboard is full, the lowest entry is removed to make
+     * room.
+     *
+     * @param name the player's name
+     * @param score the score
+     * @return the rank the score was added at, from 0 for the top, or -1 if it was not good enough
+     */
+    public synchronized int add(String name, int score) {
+        int rank = rankOf(score);
+        if(rank < 0) return -1;
+
+        if(size(root) == capacity) {
+            root = removeLast(root);
+            if(listener != null) listener.entryRemoved(capacity - 1);
+        }
+
+        int node = free;
+        free = right[node];
+        scores[node] = score;
+        order[node] = added++;
+        names[node] = name;
+        priorities[node] = nextPriority();
+        left[node] = NIL;
+        right[node] = NIL;
+        sizes[node] = 1;
+        root = insert(root, node);
+
+        if(listener != null) listener.entryAdded(rank, name, score);
+        return rank;
+    }
+
+    /**
+     * Remove the entry at a rank. The entries below it move up one rank.
+     *
+     * @param rank the rank, from 0 for the top
+     */
+    public synchronized void remove(int rank) {
+        //Throws if the rank is out of range
+        select(rank);
+        root = removeAt(root, rank);
+        if(listener != null) listener.entryRemoved(rank);
+    }
+
+    /**
+     * Work out the rank a new score would be added at, without adding it
+     *
+     * @param score the score
+     * @return the rank from 0 for the top, or -1 if the leaderboard is full and the score doesn't beat the lowest entry
+     */
+    public synchronized int rankOf(int score) {
+        //A new score goes below every entry with the same score or higher
+        int rank = 0;
+        int node = root;
+        while(node != NIL) {
+            if(scores[node] >= score) {
+                rank += size(left[node]) + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return rank < capacity ? rank : -1;
+    }
+
+    /**
+     * Get the score at a rank
+     *
+     * @param rank the rank, from 0 for the top
+     * @return the score
+     */
+    public synchronized int getScore(int rank) {
+        return scores[select(rank)];
+    }
+
+    /**
+     * Get the name at a rank
+     *
+     * @param rank the rank, from 0 for the top
+     * @return the player's name
+     */
+    public synchronized String getName(int rank) {
+        return names[select(rank)];
+    }
+
+    /**
+     * Get every entry, highest first
+     *
+     * @return the names and scores
+     */
+    public synchronized List<Pair<String, Integer>> getEntries() {
+        var entries = new ArrayList<Pair<String, Integer>>(size(root));
+        collect(root, entries);
+        return entries;
+    }
+
+    /**
+     * Remove every entry
+     */
+    public synchronized void clear() {
+        root = NIL;
+        freeAll();
+        if(listener != null) listener.cleared();
+    }
+
+    /**
+     * Link every node into the free list and drop the names they held
+     */
+    private void freeAll() {
+        for(int i = 0; i < capacity; i++) {
+            right[i] = i + 1 < capacity ? i + 1 : NIL;
+            names[i] = null;
+        }
+        free = 0;
+    }
+
+    /**
+     * Find the node at a rank
+     *
+     * @param rank the rank, from 0 for the top
+     * @return the node
+     */
+    private int select(int rank) {
+        if(rank < 0 || rank >= size(root)) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " out of " + size(root));
+        }
+        int node = root;
+        while(true) {
+            int above = size(left[node]);
+            if(rank < above) {
+                node = left[node];
+            } else if(rank == above) {
+                return node;
+            } else {
+                rank -= above + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    /**
+     * Add a node into a subtree, rotating it up past any parents with a lower priority
+     *
+     * @param subtree the subtree
+     * @param node the new node
+     * @return the new root of the subtree
+     */
+    private int insert(int subtree, int node) {
+        if(subtree == NIL) return node;
+        if(ranksAbove(node, subtree)) {
+            left[subtree] = insert(left[subtree], node);
+            if(priorities[left[subtree]] > priorities[subtree]) subtree = rotateRight(subtree);
+        } else {
+            right[subtree] = insert(right[subtree], node);
+            if(priorities[right[subtree]] > priorities[subtree]) subtree = rotateLeft(subtree);
+        }
+        update(subtree);
+        return subtree;
+    }
+
+    /**
+     * Remove the lowest ranked node of a subtree, returning it to the free list
+     *
+     * @param subtree the subtree
+     * @return the new root of the subtree
+     */
+    private int removeLast(int subtree) {
+        if(right[subtree] == NIL) {
+            int rest = left[subtree];
+            names[subtree] = null;
+            right[subtree] = free;
+            free = subtree;
+            return rest;
+        }
+        right[subtree] = removeLast(right[subtree]);
+        update(subtree);
+        return subtree;
+    }
+
+    /**
+     * Remove the node at a rank within a subtree, returning it to the free list
+     *
+     * @param subtree the subtree
+     * @param rank the rank within the subtree
+     * @return the new root of the subtree
+     */
+    private int removeAt(int subtree, int rank) {
+        int above = size(left[subtree]);
+        if(rank < above) {
+            left[subtree] = removeAt(left[subtree], rank);
+        } else if(rank > above) {
+            right[subtree] = removeAt(right[subtree], rank - above - 1);
+        } else {
+            int rest = join(left[subtree], right[subtree]);
+            names[subtree] = null;
+            right[subtree] = free;
+            free = subtree;
+            return rest;
+        }
+        update(subtree);
+        return subtree;
+    }
+
+    /**
+     * Join two subtrees, where every node of the first ranks above every node of the second
+     *
+     * @param upper the subtree ranked higher
+     * @param lower the subtree ranked lower
+     * @return the root of the joined subtree
+     */
+    private int join(int upper, int lower) {
+        if(upper == NIL) return lower;
+        if(lower == NIL) return upper;
+        if(priorities[upper] > priorities[lower]) {
+            right[upper] = join(right[upper], lower);
+            update(upper);
+            return upper;
+        }
+        left[lower] = join(upper, left[lower]);
+        update(lower);
+        return lower;
+    }
+
+    /**
+     * Rotate a node's left child up into its place
+     *
+     * @param node the node
+     * @return the node now in its place
+     */
+    private int rotateRight(int node) {
+        int child = left[node];
+        left[node] = right[child];
+        right[child] = node;
+        update(node);
+        update(child);
+        return child;
+    }
+
+    /**
+     * Rotate a node's right child up into its place
+     *
+     * @param node the node
+     * @return the node now in its place
+     */
+    private int rotateLeft(int node) {
+        int child = right[node];
+        right[node] = left[child];
+        left[child] = node;
+        update(node);
+        update(child);
+        return child;
+    }
+
+    /**
+     * Whether one node ranks above another: a higher score, or the same score added earlier
+     *
+     * @param a the first node
+     * @param b the second node
+     * @return whether a ranks above b
+     */
+    private boolean ranksAbove(int a, int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && order[a] < order[b]);
+    }
+
+    /**
+     * Recount the size of a node's subtree from its children
+     *
+     * @param node the node
+     */
+    private void update(int node) {
+        sizes[node] = size(left[node]) + size(right[node]) + 1;
+    }
+
+    /**
+     * Get the size of a subtree
+     *
+     * @param node the root of the subtree, or NIL
+     * @return the number of nodes in it
+     */
+    private int size(int node) {
+        return node == NIL ? 0 : sizes[node];
+    }
+
+    /**
+     * Add the entries of a subtree to a list, in rank order
+     *
+     * @param node the root of the subtree
+     * @param entries the list to add to
+     */
+    private void collect(int node, List<Pair<String, Integer>> entries) {
+        if(node == NIL) return;
+        collect(left[node], entries);
+        entries.add(new Pair<>(names[node], scores[node]));
+        collect(right[node], entries);
+    }
+
+    /**
+     * Get a random priority for a new node
+     *
+     * @return the priority
+     */
+    private int nextPriority() {
+        //Xorshift
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -1,17 +1,24 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.SimpleBooleanProperty;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ui.Resources;
 
-import java.util.Objects;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Responsible for playing music and audio effects in the game
  *
+ * Sound effects are preloaded by Resources as AudioClips, which are decoded into memory and can be played any number
+ * of times at once. Sound effects are played on a single audio thread, so playing one never holds up the caller. Each
+ * sound has a cooldown, so the same sound asked for many times at once is only played once, and a limit on how many
+ * copies of it can play together.
+ *
  * @author Jesse Hardy
  */
 public class Multimedia {
@@ -19,10 +26,37 @@ public class Multimedia {
      * Instance of the logger
      */
     private static final Logger logger = LogManager.getLogger(Multimedia.class);
+
+    /**
+     * The shortest time between two plays of the same sound, in nanoseconds
+     */
+    private static final long COOLDOWN_NANOS = 40_000_000L;
+
     /**
-     * For playing sound effects
+     * The most copies of one sound which may play at once
      */
-    private static MediaPlayer audioPlayer;
+    private static final int MAX_VOICES = 3;
+
+    /**
+     * How long a copy of a sound is counted as playing for, in nanoseconds. AudioClip can't say when one copy of a
+     * sound finishes, and the effects are all short.
+     */
+    private static final long VOICE_NANOS = 600_000_000L;
+
+    /**
+     * The thread every sound effect is played on
+     */
+    private static final ExecutorService audioThread = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "Audio");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The start times of the copies of each sound most recently played, oldest first. Only used on the audio thread.
+     */
+    private static final Map<String, long[]> voices = new HashMap<>();
+
     /**
      * For playing music
      */
@@ -34,22 +68,55 @@ public class Multimedia {
     private static boolean musicPlaying;
 
     /**
-     * Play the sound effect
+     * Volume of sound effects, from 0 to 1
+     */
+    private static volatile double audioVolume = 1.0;
+
+    /**
+     * Play the sound effect. Returns straight away, and the sound plays on the audio thread.
      *
      * @param file a {@link java.lang.String} object
      */
     public static void playAudio(String file){
-        String toPlay = Objects.requireNonNull(Multimedia.class.getResource("/sounds/" + file)).toExternalForm();
-        logger.info("Playing audio "+toPlay);
+        long requested = System.nanoTime();
+        audioThread.execute(() -> play(file, requested));
+    }
 
-        try{
-            Media play = new Media(toPlay);
-            audioPlayer = new MediaPlayer(play);
-            audioPlayer.play();
-        } catch(Exception e){
-            e.printStackTrace();
-            logger.error("Unable to play audio file");
+    /**
+     * Play a sound effect, unless it is cooling down or already playing as many times as allowed. Runs on the audio
+     * thread.
+     *
+     * @param file the sound file
+     * @param requested when the sound was asked for, as a System.nanoTime value
+     */
+    private static void play(String file, long requested) {
+        var clip = Resources.getSound(file);
+        if(clip == null) return;
+
+        var starts = voices.computeIfAbsent(file, key -> new long[MAX_VOICES]);
+        long latest = starts[MAX_VOICES - 1];
+        if(latest != 0 && requested - latest < COOLDOWN_NANOS) {
+            logger.debug("Skipping {}, played {}ms ago", file, (requested - latest) / 1_000_000);
+            return;
         }
+        long oldest = starts[0];
+        if(oldest != 0 && requested - oldest < VOICE_NANOS) {
+            logger.debug("Skipping {}, already playing {} times", file, MAX_VOICES);
+            return;
+        }
+
+        System.arraycopy(starts, 1, starts, 0, MAX_VOICES - 1);
+        starts[MAX_VOICES - 1] = requested;
+        clip.play(audioVolume);
+    }
+
+    /**
+     * Set the volume of sound effects
+     *
+     * @param volume volume from 0 to 1
+     */
+    public static void setAudioVolume(double volume) {
+        audioVolume = Math.max(0, Math.min(1, volume));
     }
 
     /**
@@ -58,11 +125,14 @@ public class Multimedia {
      * @param file a {@link java.lang.String} object
      */
     public static void playMusic(String file){
-        String toPlay = Objects.requireNonNull(Multimedia.class.getResource("/music/"+file).toExternalForm());
-        logger.info("Playing background music "+toPlay);
+        Media play = Resources.getMusic(file);
+        if(play == null) {
+            logger.error("Unable to play music file {}", file);
+            return;
+        }
+        logger.info("Playing background music "+file);
 
         try{
-            Media play = new Media(toPlay);
             musicPlayer = new MediaPlayer(play);
             musicPlayer.setCycleCount(MediaPlayer.INDEFINITE);
             musicPlayer.setVolume(0.2);
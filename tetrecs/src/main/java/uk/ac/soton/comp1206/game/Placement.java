@@ -0,0 +1,103 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A Placement describes one move in the game: optionally swapping the current and following pieces, rotating the
+ * piece, then playing it centred at x,y.
+ *
+ * @author Jesse Hardy
+ */
+public class Placement {
+
+    /**
+     * The column to play the piece at
+     */
+    private final int x;
+
+    /**
+     * The row to play the piece at
+     */
+    private final int y;
+
+    /**
+     * The number of clockwise rotations to apply before playing
+     */
+    private final int rotation;
+
+    /**
+     * Whether to swap the current and following pieces first
+     */
+    private final boolean swap;
+
+    /**
+     * Create a new Placement
+     *
+     * @param x column
+     * @param y row
+     * @param rotation number of clockwise rotations to apply before playing
+     * @param swap whether to swap the current and following pieces first
+     */
+    public Placement(int x, int y, int rotation, boolean swap) {
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.swap = swap;
+    }
+
+    /**
+     * Make this move in the given game
+     *
+     * @param engine the game to play in
+     * @return whether the piece was played
+     */
+    public boolean applyTo(GameEngine engine) {
+        if(swap) engine.swap();
+        if(rotation != 0) engine.rotate(rotation);
+        return engine.place(x, y);
+    }
+
+    /**
+     * Get the column to play the piece at
+     *
+     * @return column
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get the row to play the piece at
+     *
+     * @return row
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Get the number of clockwise rotations to apply before playing
+     *
+     * @return number of rotations
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get whether to swap the current and following pieces first
+     *
+     * @return whether to swap
+     */
+    public boolean isSwap() {
+        return swap;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Return a string representation of this Placement
+     */
+    @Override
+    public String toString() {
+        return "Placement [x = " + x + ", y = " + y + ", rotation = " + rotation + ", swap = " + swap + "]";
+    }
+}
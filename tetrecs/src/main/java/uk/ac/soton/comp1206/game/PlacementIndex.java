@@ -0,0 +1,264 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A PlacementIndex keeps track of every legal placement of every piece orientation on a Grid, updated as each cell
+ * fills or empties rather than recomputed from scratch.
+ *
+ * Every placement which fits inside the board (an orientation centred at a cell) counts how many of its cells are
+ * occupied. Each orientation also keeps a bitboard of the centre cells where that count is zero, so checking,
+ * counting and listing the legal placements of a piece never has to look at the grid.
+ *
+ * Which placements fit on the board is worked out once per board size and shared. An index is created and kept up to
+ * date by its Grid, see Grid.getPlacementIndex.
+ *
+ * @author Jesse Hardy
+ */
+public class PlacementIndex {
+
+    /**
+     * The shared layout of each board size, keyed by (cols << 32 | rows)
+     */
+    private static final Map<Long, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+    /**
+     * The layout of placements for this board size
+     */
+    private final Layout layout;
+
+    /**
+     * The number of occupied cells under each placement. A placement is legal when this is zero.
+     */
+    private final int[] blocked;
+
+    /**
+     * Bitboard of the legal centre cells of each orientation, indexed by orientation then word
+     */
+    private final long[][] legal;
+
+    /**
+     * The number of legal placements of each orientation
+     */
+    private final int[] legalCount;
+
+    /**
+     * Build the index for the current contents of a grid
+     *
+     * @param grid the grid to index
+     */
+    PlacementIndex(Grid grid) {
+        int cols = grid.getCols();
+        int rows = grid.getRows();
+        layout = LAYOUTS.computeIfAbsent(((long) cols << 32) | rows, key -> new Layout(cols, rows));
+
+        //Start from the empty board, then fill in the cells already occupied
+        blocked = new int[layout.placementCentre.length];
+        legal = new long[layout.emptyLegal.length][];
+        for(int orientation = 0; orientation < legal.length; orientation++) {
+            legal[orientation] = layout.emptyLegal[orientation].clone();
+        }
+        legalCount = layout.emptyLegalCount.clone();
+        for(int y = 0; y < rows; y++) {
+            for(int x = 0; x < cols; x++) {
+                if(grid.isOccupied(x, y)) cellChanged(y * cols + x, true);
+            }
+        }
+    }
+
+    /**
+     * Update the placements covering a cell which has just been filled or emptied. Called by the Grid.
+     *
+     * @param cell the cell, as (y * cols + x)
+     * @param occupied whether the cell is now occupied
+     */
+    void cellChanged(int cell, boolean occupied) {
+        for(int placement : layout.cellPlacements[cell]) {
+            int orientation = layout.placementOrientation[placement];
+            int centre = layout.placementCentre[placement];
+            if(occupied) {
+                if(blocked[placement]++ == 0) {
+                    legal[orientation][centre >>> 6] &= ~(1L << centre);
+                    legalCount[orientation]--;
+                }
+            } else {
+                if(--blocked[placement] == 0) {
+                    legal[orientation][centre >>> 6] |= 1L << centre;
+                    legalCount[orientation]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a piece can be played centred at x,y
+     *
+     * @param piece the piece, in the orientation to play it
+     * @param x column
+     * @param y row
+     * @return whether the piece can be played there
+     */
+    public boolean isLegal(GamePiece piece, int x, int y) {
+        if(x < 0 || x >= layout.cols || y < 0 || y >= layout.rows) return false;
+        int centre = y * layout.cols + x;
+        return (legal[piece.getOrientation()][centre >>> 6] & (1L << centre)) != 0;
+    }
+
+    /**
+     * Count the places a piece can be played in any of its orientations
+     *
+     * @param piece the piece
+     * @return the number of legal placements
+     */
+    public int countLegal(GamePiece piece) {
+        int count = 0;
+        for(int rotation = 0; rotation < piece.getRotations(); rotation++) {
+            count += legalCount[piece.rotated(rotation).getOrientation()];
+        }
+        return count;
+    }
+
+    /**
+     * Check whether a piece can be played anywhere in any of its orientations
+     *
+     * @param piece the piece
+     * @return whether there is a legal placement
+     */
+    public boolean hasLegalPlacement(GamePiece piece) {
+        for(int rotation = 0; rotation < piece.getRotations(); rotation++) {
+            if(legalCount[piece.rotated(rotation).getOrientation()] > 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add every legal placement of a piece, in each of its orientations, to a list. The rotation of each placement is
+     * relative to the orientation of the given piece.
+     *
+     * @param piece the piece
+     * @param swap whether the placements need the current and following pieces swapped first
+     * @param placements the list to add the placements to
+     */
+    public void collectLegal(GamePiece piece, boolean swap, List<Placement> placements) {
+        for(int rotation = 0; rotation < piece.getRotations(); rotation++) {
+            long[] words = legal[piece.rotated(rotation).getOrientation()];
+            for(int word = 0; word < words.length; word++) {
+                long bits = words[word];
+                while(bits != 0) {
+                    int centre = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    placements.add(new Placement(centre % layout.cols, centre / layout.cols, rotation, swap));
+                }
+            }
+        }
+    }
+
+    /**
+     * Which placements fit inside a board of one size and which cells each covers. This never changes, so it is built
+     * once per board size and shared by every index.
+     */
+    private static class Layout {
+
+        /**
+         * The number of columns in the board
+         */
+        private final int cols;
+
+        /**
+         * The number of rows in the board
+         */
+        private final int rows;
+
+        /**
+         * The placements covering each cell, indexed by (y * cols + x)
+         */
+        private final int[][] cellPlacements;
+
+        /**
+         * The orientation of each placement
+         */
+        private final int[] placementOrientation;
+
+        /**
+         * The centre cell of each placement
+         */
+        private final int[] placementCentre;
+
+        /**
+         * The legal centre cells of each orientation on an empty board
+         */
+        private final long[][] emptyLegal;
+
+        /**
+         * The number of legal placements of each orientation on an empty board
+         */
+        private final int[] emptyLegalCount;
+
+        /**
+         * Find every placement which fits inside a board of the given size
+         *
+         * @param cols number of columns
+         * @param rows number of rows
+         */
+        private Layout(int cols, int rows) {
+            this.cols = cols;
+            this.rows = rows;
+            int cells = cols * rows;
+            int orientations = GamePiece.getOrientationCount();
+
+            List<List<Integer>> covering = new ArrayList<>(cells);
+            for(int cell = 0; cell < cells; cell++) covering.add(new ArrayList<>());
+            List<int[]> placements = new ArrayList<>();
+            emptyLegal = new long[orientations][(cells + 63) >>> 6];
+            emptyLegalCount = new int[orientations];
+            for(int orientation = 0; orientation < orientations; orientation++) {
+                var piece = GamePiece.fromOrientation(orientation);
+                for(int y = 0; y < rows; y++) {
+                    for(int x = 0; x < cols; x++) {
+                        if(!fitsInside(piece, x, y)) continue;
+                        int centre = y * cols + x;
+                        int placement = placements.size();
+                        placements.add(new int[] { orientation, centre });
+                        emptyLegal[orientation][centre >>> 6] |= 1L << centre;
+                        emptyLegalCount[orientation]++;
+                        for(int block = 0; block < piece.getBlockCount(); block++) {
+                            int cell = (y + piece.getBlockY(block)) * cols + x + piece.getBlockX(block);
+                            covering.get(cell).add(placement);
+                        }
+                    }
+                }
+            }
+
+            cellPlacements = new int[cells][];
+            for(int cell = 0; cell < cells; cell++) {
+                cellPlacements[cell] = covering.get(cell).stream().mapToInt(Integer::intValue).toArray();
+            }
+            placementOrientation = new int[placements.size()];
+            placementCentre = new int[placements.size()];
+            for(int placement = 0; placement < placements.size(); placement++) {
+                placementOrientation[placement] = placements.get(placement)[0];
+                placementCentre[placement] = placements.get(placement)[1];
+            }
+        }
+
+        /**
+         * Check whether every block of a piece centred at x,y lies inside the board
+         *
+         * @param piece the piece
+         * @param x column
+         * @param y row
+         * @return whether the piece fits inside the board
+         */
+        private boolean fitsInside(GamePiece piece, int x, int y) {
+            for(int block = 0; block < piece.getBlockCount(); block++) {
+                int blockX = x + piece.getBlockX(block);
+                int blockY = y + piece.getBlockY(block);
+                if(blockX < 0 || blockX >= cols || blockY < 0 || blockY >= rows) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.GameEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A ReplayLog is a compact recording of every command given to a seeded GameEngine, which can be played back later to
+ * reproduce the game exactly.
+ *
+ * The binary format is:
+ * <pre>
+ *   "TRPL"            4 byte magic
+ *   version           1 byte, currently 1
+ *   cols, rows        varints
+ *   seed              8 bytes, big-endian
+ *   score             varint, the score the recorded game finished on
+ *   events...         one varint each, until the end of the data
+ * </pre>
+ * Each event is packed as {@code (argument << 2) | type}, where the type is PLACE (argument is y * cols + x), ROTATE
+ * (argument is the number of rotations), SWAP or TIMEOUT (no argument). On a 5x5 board every event fits in one byte.
+ *
+ * @author Jesse Hardy
+ */
+public class ReplayLog {
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(ReplayLog.class);
+
+    /**
+     * The bytes every replay starts with
+     */
+    private static final byte[] MAGIC = {'T', 'R', 'P', 'L'};
+
+    /**
+     * The folder games are saved to when recording is turned on
+     */
+    public static final Path FOLDER = Path.of("data", "replays");
+
+    /**
+     * The most replays kept in the folder. Older ones are deleted as new ones are saved.
+     */
+    public static final int MAX_SAVED = 20;
+
+    /**
+     * The version of the format written by this class
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Event type for playing the current piece
+     */
+    private static final int PLACE = 0;
+
+    /**
+     * Event type for rotating the current piece
+     */
+    private static final int ROTATE = 1;
+
+    /**
+     * Event type for swapping the current and following pieces
+     */
+    private static final int SWAP = 2;
+
+    /**
+     * Event type for the timer running out
+     */
+    private static final int TIMEOUT = 3;
+
+    /**
+     * Number of columns in the recorded game
+     */
+    private final int cols;
+
+    /**
+     * Number of rows in the recorded game
+     */
+    private final int rows;
+
+    /**
+     * The seed the recorded game was started with
+     */
+    private final long seed;
+
+    /**
+     * The score the recorded game reached
+     */
+    private int score;
+
+    /**
+     * The encoded events
+     */
+    private byte[] events = new byte[256];
+
+    /**
+     * Number of bytes of events used
+     */
+    private int length;
+
+    /**
+     * Create a new, empty replay log for a game of the given size and seed
+     *
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed the seed of the game
+     */
+    public ReplayLog(int cols, int rows, long seed) {
+        this.cols = cols;
+        this.rows = rows;
+        this.seed = seed;
+    }
+
+    /**
+     * Record the current piece being played at x,y
+     *
+     * @param x column
+     * @param y row
+     */
+    public void recordPlace(int x, int y) {
+        //Placements off the grid can't succeed, so there is nothing to replay
+        if(x < 0 || x >= cols || y < 0 || y >= rows) return;
+        writeEvent(PLACE, y * cols + x);
+    }
+
+    /**
+     * Record the current piece being rotated
+     *
+     * @param rotations number of clockwise rotations
+     */
+    public void recordRotate(int rotations) {
+        writeEvent(ROTATE, Math.floorMod(rotations, 4));
+    }
+
+    /**
+     * Record the current and following pieces being swapped
+     */
+    public void recordSwap() {
+        writeEvent(SWAP, 0);
+    }
+
+    /**
+     * Record the timer running out
+     */
+    public void recordTimeout() {
+        writeEvent(TIMEOUT, 0);
+    }
+
+    /**
+     * Record the score the game has reached
+     *
+     * @param score the current score
+     */
+    public void recordScore(int score) {
+        this.score = score;
+    }
+
+    /**
+     * Play this replay back on a new engine as fast as possible
+     *
+     * @param listener listener to receive the events of the replayed game, or null for none
+     * @return the engine, in the state the recorded game finished in
+     */
+    public GameEngine replay(GameEventListener listener) {
+        var engine = new GameEngine(cols, rows, seed);
+        engine.setListener(listener);
+        engine.start();
+
+        int[] position = {0};
+        while(position[0] < length) {
+            int value = readVarint(events, position);
+            int argument = value >>> 2;
+            switch(value & 3) {
+                case PLACE -> engine.place(argument % cols, argument / cols);
+                case ROTATE -> engine.rotate(argument);
+                case SWAP -> engine.swap();
+                case TIMEOUT -> engine.tick();
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Append an event to the log
+     *
+     * @param type the event type
+     * @param argument the event argument
+     */
+    private void writeEvent(int type, int argument) {
+        if(length + 5 > events.length) {
+            events = Arrays.copyOf(events, Math.max(256, events.length * 2));
+        }
+        length = writeVarint(events, length, (argument << 2) | type);
+    }
+
+    /**
+     * Encode this replay in the binary format
+     *
+     * @return the encoded replay
+     */
+    public byte[] toByteArray() {
+        byte[] header = new byte[MAGIC.length + 1 + 5 + 5 + 8 + 5];
+        int position = 0;
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        position += MAGIC.length;
+        header[position++] = VERSION;
+        position = writeVarint(header, position, cols);
+        position = writeVarint(header, position, rows);
+        for(int shift = 56; shift >= 0; shift -= 8) {
+            header[position++] = (byte) (seed >>> shift);
+        }
+        position = writeVarint(header, position, score);
+
+        byte[] data = Arrays.copyOf(header, position + length);
+        System.arraycopy(events, 0, data, position, length);
+        return data;
+    }
+
+    /**
+     * Write this replay to a file, creating its folder if needed
+     *
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     */
+    public void writeTo(Path file) throws IOException {
+        if(file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, toByteArray());
+        logger.info("Saved replay of {} bytes to {}", length, file);
+    }
+
+    /**
+     * Check whether games should be recorded and saved. Recording is off unless the tetrecs.replays system property
+     * is set to true.
+     *
+     * @return whether to record games
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("tetrecs.replays");
+    }
+
+    /**
+     * Save an encoded replay to a new file in the replays folder, then delete the oldest replays beyond MAX_SAVED
+     *
+     * @param data the encoded replay
+     * @return the file it was saved to
+     * @throws IOException if the file could not be written
+     */
+    public static Path save(byte[] data) throws IOException {
+        Files.createDirectories(FOLDER);
+        var file = FOLDER.resolve("replay-" + System.currentTimeMillis() + ".trpl");
+        Files.write(file, data);
+        logger.info("Saved replay of {} bytes to {}", data.length, file);
+
+        //The names hold the time they were saved, so they sort oldest first
+        List<Path> saved;
+        try(var files = Files.list(FOLDER)) {
+            saved = files.filter(path -> path.getFileName().toString().endsWith(".trpl")).sorted().toList();
+        }
+        for(int i = 0; i < saved.size() - MAX_SAVED; i++) {
+            Files.deleteIfExists(saved.get(i));
+        }
+        return file;
+    }
+
+    /**
+     * Decode a replay from the binary format
+     *
+     * @param data the encoded replay
+     * @return the replay
+     * @throws IOException if the data is not a valid replay
+     */
+    public static ReplayLog read(byte[] data) throws IOException {
+        if(data.length < MAGIC.length + 1 || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a replay file");
+        }
+        if(data[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported replay version: " + data[MAGIC.length]);
+        }
+
+        try {
+            int[] position = {MAGIC.length + 1};
+            int cols = readVarint(data, position);
+            int rows = readVarint(data, position);
+            long seed = 0;
+            for(int i = 0; i < 8; i++) {
+                seed = (seed << 8) | (data[position[0]++] & 0xFF);
+            }
+            var replay = new ReplayLog(cols, rows, seed);
+            replay.score = readVarint(data, position);
+            replay.events = Arrays.copyOfRange(data, position[0], data.length);
+            replay.length = replay.events.length;
+            return replay;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Replay is truncated", e);
+        }
+    }
+
+    /**
+     * Read a replay from a file
+     *
+     * @param file the file to read
+     * @return the replay
+     * @throws IOException if the file could not be read or is not a valid replay
+     */
+    public static ReplayLog read(Path file) throws IOException {
+        return read(Files.readAllBytes(file));
+    }
+
+    /**
+     * Write a varint into a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param position where to start writing
+     * @param value the value to write
+     * @return the position after the varint
+     */
+    private static int writeVarint(byte[] buffer, int position, int value) {
+        while((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Read a varint from a buffer
+     *
+     * @param buffer the buffer to read from
+     * @param position a single element array holding where to start reading, which is moved past the varint
+     * @return the value read
+     */
+    private static int readVarint(byte[] buffer, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while(b < 0);
+        return value;
+    }
+
+    /**
+     * Get the number of columns in the recorded game
+     *
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows in the recorded game
+     *
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the seed the recorded game was started with
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the score the recorded game reached
+     *
+     * @return the recorded score
+     */
+    public int getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,72 @@
+package uk.ac.soton.comp1206.game;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Plays back saved replays headlessly and checks each one still reaches the score it was recorded with. Used to
+ * regression test changes to the scoring rules against a folder of recorded games.
+ *
+ * Run with the replay files or folders to check as arguments, defaulting to data/replays.
+ *
+ * @author Jesse Hardy
+ */
+public class ReplayRunner {
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(ReplayRunner.class);
+
+    /**
+     * Replay every given file, or every .trpl file in the given folders
+     *
+     * @param args files or folders of replays
+     * @throws IOException if a folder could not be listed
+     */
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for(String arg : args.length == 0 ? new String[]{"data/replays"} : args) {
+            var path = Path.of(arg);
+            if(Files.isDirectory(path)) {
+                try(Stream<Path> listing = Files.list(path)) {
+                    listing.filter(file -> file.toString().endsWith(".trpl")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        int mismatches = 0;
+        int failed = 0;
+        long start = System.nanoTime();
+        for(Path file : files) {
+            try {
+                var replay = ReplayLog.read(file);
+                var engine = replay.replay(null);
+                if(engine.getScore() != replay.getScore()) {
+                    mismatches++;
+                    logger.warn("{}: recorded score {} but replayed score {}", file, replay.getScore(),
+                            engine.getScore());
+                }
+            } catch (IOException e) {
+                failed++;
+                logger.error("{}: {}", file, e.getMessage());
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        logger.info("Replayed {} games in {} s ({} games/s): {} score mismatches, {} unreadable",
+                files.size(), String.format("%.3f", seconds), String.format("%.0f", files.size() / seconds),
+                mismatches, failed);
+        if(mismatches > 0 || failed > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package uk.ac.soton.comp1206.game;
+
+import javafx.util.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ScoreStore keeps the local high scores, in memory and in a file.
+ *
+ * The file is read once, into a list kept sorted from highest score to lowest, so looking up the scores or the top
+ * score never touches the disk. The file holds one "name:score" line per score. New scores are appended to the end
+ * and flushed to disk, so the scores already there are never at risk. A line cut short by a crash is skipped, and
+ * cleared out, when the file is read.
+ *
+ * Writing to the file happens on a background thread, in the order the scores were added, so adding a score never
+ * waits on the disk. Any writes still waiting when the game exits are finished first.
+ *
+ * Every so often the file is compacted: the best scores are written, in order, to a temporary file which then
+ * replaces the old one in a single rename, and any scores beyond the size of the table are dropped.
+ *
+ * @author Jesse Hardy
+ */
+public class ScoreStore {
+
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(ScoreStore.class);
+
+    /**
+     * The file the game keeps its local scores in
+     */
+    public static final Path LOCAL_FILE = Path.of("data", "scores.txt");
+
+    /**
+     * The most scores kept
+     */
+    public static final int MAX_SCORES = 50;
+
+    /**
+     * How many scores may be appended before the file is compacted
+     */
+    private static final int COMPACT_AFTER = 32;
+
+    /**
+     * The thread every store writes its file on
+     */
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "ScoreStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        //Let the last scores reach the disk before the game exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "ScoreStoreShutdown"));
+    }
+
+    /**
+     * The file the scores are kept in
+     */
+    private final Path file;
+
+    /**
+     * The scores, highest first
+     */
+    private final List<Pair<String, Integer>> scores = new ArrayList<>();
+
+    /**
+     * The highest score, or 0 if there are none
+     */
+    private volatile int topScore;
+
+    /**
+     * Lines in the file which a compaction would remove: appended scores, dropped scores and damaged lines. Only used
+     * on the writer thread once the file is loaded.
+     */
+    private int wasted;
+
+    /**
+     * Whether a compaction was asked for while scores were still waiting to be appended. Only used on the writer
+     * thread.
+     */
+    private boolean compactWanted;
+
+    /**
+     * Scores added to the list which have not been appended to the file yet
+     */
+    private int pending;
+
+    /**
+     * Holds the store for the local scores file, loaded the first time it is used
+     */
+    private static class Local {
+        /**
+         * The store for the local scores file
+         */
+        private static final ScoreStore STORE = new ScoreStore(LOCAL_FILE);
+    }
+
+    /**
+     * Create a store for a file, reading any scores already in it
+     *
+     * @param file the file to keep the scores in
+     */
+    public ScoreStore(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Get the store for the game's local scores file
+     *
+     * @return the local store
+     */
+    public static ScoreStore local() {
+        return Local.STORE;
+    }
+
+    /**
+     * Read the file into the sorted list
+     */
+    private synchronized void load() {
+        long start = System.nanoTime();
+        String text;
+        try {
+            text = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            text = "";
+        } catch (IOException e) {
+            logger.error("Unable to read the scores from {}: {}", file, e.getMessage());
+            text = "";
+        }
+
+        //Every score is written with its newline, so a last line without one was cut short by a crash
+        int end = text.lastIndexOf('\n') + 1;
+        boolean torn = end < text.length();
+        if(torn) logger.warn("Skipping unfinished score line: {}", text.substring(end));
+
+        for(var line : text.substring(0, end).split("\n")) {
+            if(line.isEmpty()) continue;
+            var score = parse(line);
+            if(score == null) {
+                logger.warn("Skipping damaged score line: {}", line);
+                wasted++;
+            } else {
+                insert(score);
+            }
+        }
+        //Scores appended since the last compaction are out of order in the file
+        wasted += Math.max(0, scores.size() - MAX_SCORES);
+        trim();
+        logger.info("Loaded {} scores from {} in {}ms", scores.size(), file, (System.nanoTime() - start) / 1_000_000);
+
+        if(torn) {
+            //Appending after the broken line would join the next score onto it
+            compact();
+        }
+    }
+
+    /**
+     * Parse one line of the file
+     *
+     * @param line the line
+     * @return the name and score, or null if the line is not a valid score
+     */
+    private static Pair<String, Integer> parse(String line) {
+        int colon = line.lastIndexOf(':');
+        if(colon < 0) return null;
+        try {
+            return new Pair<>(line.substring(0, colon), Integer.parseInt(line.substring(colon + 1).trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the scores, highest first
+     *
+     * @return a copy of the scores
+     */
+    public synchronized List<Pair<String, Integer>> getScores() {
+        return new ArrayList<>(scores);
+    }
+
+    /**
+     * Get the highest score
+     *
+     * @return the top score, or 0 if there are no scores
+     */
+    public int getTopScore() {
+        return topScore;
+    }
+
+    /**
+     * Add a score. It is in the scores straight away, and is saved to the file in the background.
+     *
+     * @param name the player's name
+     * @param score the score
+     */
+    public synchronized void add(String name, int score) {
+        //Names can't break the one-score-per-line format
+        var entry = new Pair<>(name.replace('\n', ' ').replace('\r', ' '), score);
+        insert(entry);
+        trim();
+
+        var line = entry.getKey() + ":" + entry.getValue() + "\n";
+        pending++;
+        writer.execute(() -> save(line));
+    }
+
+    /**
+     * Rewrite the file with just the kept scores, in order, replacing the old file in one rename. The file is written
+     * in the background.
+     */
+    public void compact() {
+        writer.execute(this::writeCompacted);
+    }
+
+    /**
+     * Append a score to the file, compacting it once enough scores have been appended. Called on the writer thread.
+     *
+     * @param line the score's line, ending in a newline
+     */
+    private void save(String line) {
+        try {
+            append(line);
+            wasted++;
+        } catch (IOException e) {
+            logger.error("Unable to save the score to {}: {}", file, e.getMessage());
+        }
+        synchronized(this) {
+            pending--;
+        }
+        if(wasted >= COMPACT_AFTER || compactWanted) {
+            writeCompacted();
+        }
+    }
+
+    /**
+     * Write the kept scores to a temporary file and rename it over the old one. Called on the writer thread.
+     */
+    private void writeCompacted() {
+        var data = new StringBuilder();
+        int kept;
+        synchronized(this) {
+            //A score still waiting to be appended would end up in the file twice, so wait for the last append
+            if(pending > 0) {
+                compactWanted = true;
+                return;
+            }
+            for(var entry : scores) {
+                data.append(entry.getKey()).append(':').append(entry.getValue()).append('\n');
+            }
+            kept = scores.size();
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            createParent();
+            try(var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(data.toString().getBytes(StandardCharsets.UTF_8)));
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            wasted = 0;
+            compactWanted = false;
+            logger.info("Compacted {} to {} scores", file, kept);
+        } catch (IOException e) {
+            logger.error("Unable to compact {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Append a line to the file and flush it to disk
+     *
+     * @param line the line, ending in a newline
+     * @throws IOException if it could not be written
+     */
+    private void append(String line) throws IOException {
+        createParent();
+        try(var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Make sure the folder the file goes in exists
+     *
+     * @throws IOException if it could not be made
+     */
+    private void createParent() throws IOException {
+        if(file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+    }
+
+    /**
+     * Put a score into its place in the sorted list. Equal scores keep the order they were added in.
+     *
+     * @param entry the name and score
+     */
+    private void insert(Pair<String, Integer> entry) {
+        int low = 0;
+        int high = scores.size();
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(scores.get(mid).getValue() >= entry.getValue()) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        scores.add(low, entry);
+        topScore = scores.get(0).getValue();
+    }
+
+    /**
+     * Drop the lowest scores beyond the size of the table
+     */
+    private void trim() {
+        while(scores.size() > MAX_SCORES) {
+            scores.remove(scores.size() - 1);
+        }
+    }
+}
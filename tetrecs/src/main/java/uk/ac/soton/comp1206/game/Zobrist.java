@@ -0,0 +1,77 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Zobrist keys for hashing game states. Each feature of a state (a colour in a cell, a piece in the queue, the
+ * multiplier) has its own pseudo-random 64-bit key, and the hash of a state is the XOR of the keys of its features,
+ * so it can be updated in place as single features change.
+ *
+ * Keys are derived from a fixed seed with the SplitMix64 mixing function rather than stored in tables, so boards of
+ * any size are supported and the same state always hashes the same way, across runs and machines.
+ *
+ * @author Jesse Hardy
+ */
+public final class Zobrist {
+
+    /**
+     * Seed all keys are derived from
+     */
+    private static final long SEED = 0x7E7EC5_1206L;
+
+    /**
+     * Feature numbers used for the piece queue, well clear of any cell numbers
+     */
+    private static final long PIECE_FEATURES = 1L << 40;
+
+    /**
+     * Feature numbers used for the multiplier
+     */
+    private static final long MULTIPLIER_FEATURES = 1L << 41;
+
+    private Zobrist() {
+    }
+
+    /**
+     * Get the key for a cell holding a colour. Empty cells have no key.
+     *
+     * @param cell the cell, as (y * cols + x)
+     * @param colour the colour value, 0 for empty
+     * @return the key
+     */
+    public static long cell(int cell, int colour) {
+        return colour == 0 ? 0 : mix((long) cell << 8 | colour);
+    }
+
+    /**
+     * Get the key for a piece orientation in a position of the queue
+     *
+     * @param slot position in the queue, 0 for the current piece
+     * @param piece the piece in that position
+     * @return the key
+     */
+    public static long piece(int slot, GamePiece piece) {
+        return mix(PIECE_FEATURES | (long) slot << 16 | piece.getOrientation());
+    }
+
+    /**
+     * Get the key for the multiplier
+     *
+     * @param multiplier the multiplier
+     * @return the key
+     */
+    public static long multiplier(int multiplier) {
+        return mix(MULTIPLIER_FEATURES | multiplier);
+    }
+
+    /**
+     * Turn a feature number into a pseudo-random key with the SplitMix64 finaliser
+     *
+     * @param feature the feature number
+     * @return the key
+     */
+    private static long mix(long feature) {
+        long z = SEED + (feature + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
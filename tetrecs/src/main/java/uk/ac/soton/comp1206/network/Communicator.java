@@ -1,18 +1,43 @@
 package uk.ac.soton.comp1206.network;
 
 import com.neovisionaries.ws.client.*;
-import javafx.scene.control.Alert;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.BackpressureListener;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
 
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Uses web sockets to talk to a web socket server and relays communication to attached listeners
  *
- * YOU DO NOT NEED TO WORRY ABOUT THIS CLASS! Leave it be :-)
+ * Connecting happens in the background, so nothing waits on the network. If the connection can't be made or is lost,
+ * it is tried again after a delay which doubles with each failure, up to a limit. While connected, the server is
+ * pinged regularly to measure the round trip time, and a connection which stops answering is dropped and made again.
+ * The state of the connection is a property the UI can watch.
+ *
+ * Messages are queued and sent in batches by a writer thread, and are held while disconnected. The queue is bounded:
+ * when it is full, send refuses the message and the backpressure listener is told. Requests which expect a reply can
+ * be made with request, which matches replies to requests so many parts of the game can share the one connection.
+ *
+ * The server address can be changed with the tetrecs.server system property, for example to test against a local
+ * server with -Dtetrecs.server=ws://localhost:9700, and permessage-deflate compression turned on with
+ * -Dtetrecs.compress=true
  *
  * @author Jesse Hardy
  */
@@ -22,81 +47,509 @@ public class Communicator {
      */
     private static final Logger logger = LogManager.getLogger(Communicator.class);
 
+    /**
+     * The server used unless the tetrecs.server system property says otherwise
+     */
+    public static final String DEFAULT_SERVER = "ws://ofb-labs.soton.ac.uk:9700";
+
+    /**
+     * How long to wait for a connection to be made, in milliseconds
+     */
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    /**
+     * The delay before the first reconnection attempt, in milliseconds
+     */
+    private static final long INITIAL_BACKOFF = 500;
+
+    /**
+     * The longest delay between reconnection attempts, in milliseconds
+     */
+    private static final long MAX_BACKOFF = 30_000;
+
+    /**
+     * How often to ping the server, in milliseconds
+     */
+    private static final long HEARTBEAT_INTERVAL = 15_000;
+
+    /**
+     * How many heartbeats may go unanswered before the connection is treated as dead
+     */
+    private static final int MISSED_HEARTBEATS = 3;
+
+    /**
+     * How long to wait for the reply to a request, in milliseconds
+     */
+    private static final long REQUEST_TIMEOUT = 10_000;
+
+    /**
+     * The most messages which can wait to be sent
+     */
+    private static final int QUEUE_CAPACITY = 256;
+
+    /**
+     * The most messages the writer sends in one go
+     */
+    private static final int MAX_BATCH = 64;
+
+    /**
+     * Messages which only matter as their latest value, so older copies in a batch can be dropped
+     */
+    private static final String[] LATEST_ONLY = {"BOARD", "SCORE", "LIVES"};
+
+    /**
+     * Requests which only read from the server, so identical ones waiting at once can share one reply
+     */
+    private static final String[] SHAREABLE = {"HISCORES"};
+
     /**
      * Attached communication listeners listening to messages on this Communicator. Each will be sent any messages.
      */
-    private final List<CommunicationsListener> handlers = new ArrayList<>();
+    private final List<CommunicationsListener> handlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Requests waiting for their reply, oldest first
+     */
+    private final Deque<Request> requests = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Messages waiting to be sent, by the writer thread
+     */
+    private final BlockingQueue<String> outbound = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    /**
+     * Held by the writer while it waits for a connection
+     */
+    private final Object connectionLock = new Object();
+
+    /**
+     * The server to connect to
+     */
+    private final String server;
+
+    /**
+     * The thread connections are made and heartbeats are sent on
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * The state of the connection, only changed on the JavaFX thread
+     */
+    private final ReadOnlyObjectWrapper<ConnectionState> state =
+            new ReadOnlyObjectWrapper<>(this, "state", ConnectionState.DISCONNECTED);
+
+    /**
+     * The current web socket, or null while disconnected
+     */
+    private volatile WebSocket ws = null;
+
+    /**
+     * Whether the communicator has been closed for good
+     */
+    private volatile boolean closed;
+
     /**
-     * New web socket field variable
+     * The delay before the next reconnection attempt, in milliseconds. Only used on the executor thread.
      */
-    private WebSocket ws = null;
+    private long backoff = INITIAL_BACKOFF;
 
     /**
-     * Create a new communicator to the given web socket server
+     * The handle of the heartbeat task while connected
+     */
+    private ScheduledFuture<?> heartbeat;
+
+    /**
+     * When the last ping was sent, as a System.nanoTime value
+     */
+    private volatile long pingSentAt;
+
+    /**
+     * When the server last answered a ping, as a System.nanoTime value
+     */
+    private volatile long lastPong;
+
+    /**
+     * The round trip time of the last answered ping, in milliseconds, or -1 if none has been answered
+     */
+    private volatile long latency = -1;
+
+    /**
+     * Whether to ask the server to compress messages with permessage-deflate
+     */
+    private volatile boolean compression = Boolean.getBoolean("tetrecs.compress");
+
+    /**
+     * The thread sending queued messages, started by connect
+     */
+    private Thread writer;
+
+    /**
+     * Whether the outgoing queue is full, as last told to the backpressure listener
+     */
+    private volatile boolean backpressured;
+
+    /**
+     * The listener to call when the outgoing queue fills up or empties
+     */
+    private BackpressureListener backpressureListener;
+
+    /**
+     * Create a new communicator to the given web socket server. Call connect to start connecting.
      *
      * @param server server to connect to
      */
     public Communicator(String server) {
+        this.server = server;
+        this.executor = new ScheduledThreadPoolExecutor(1, task -> {
+            var thread = new Thread(task, "Communicator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
-        try {
-            var socketFactory = new WebSocketFactory();
+    /**
+     * Get the address of the server to use
+     *
+     * @return the tetrecs.server system property, or the default server
+     */
+    public static String serverAddress() {
+        return System.getProperty("tetrecs.server", DEFAULT_SERVER);
+    }
 
-            //Connect to the server
-            ws = socketFactory.createSocket(server);
-            ws.connect();
+    /**
+     * Start connecting to the server in the background
+     */
+    public synchronized void connect() {
+        if(writer == null) {
+            writer = new Thread(this::write, "CommunicatorWriter");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        executor.execute(() -> {
+            setState(ConnectionState.CONNECTING);
+            attempt();
+        });
+    }
+
+    /**
+     * Try to connect once, and schedule another try if it fails. Runs on the executor thread.
+     */
+    private void attempt() {
+        if(closed || ws != null) return;
+        try {
+            var socket = new WebSocketFactory()
+                    .setConnectionTimeout(CONNECT_TIMEOUT)
+                    .createSocket(server);
+            socket.addListener(new Listener());
+            if(compression) {
+                socket.addExtension(WebSocketExtension.PERMESSAGE_DEFLATE);
+            }
+            socket.connect();
             logger.info("Connected to " + server);
 
-            //When a message is received, call the receive method
-            ws.addListener(new WebSocketAdapter() {
-                @Override
-                public void onTextMessage(WebSocket websocket, String message) throws Exception {
-                    Communicator.this.receive(websocket, message);
+            ws = socket;
+            backoff = INITIAL_BACKOFF;
+            lastPong = System.nanoTime();
+            heartbeat = executor.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL,
+                    TimeUnit.MILLISECONDS);
+            setState(ConnectionState.CONNECTED);
+            synchronized (connectionLock) {
+                connectionLock.notifyAll();
+            }
+        } catch (Exception e) {
+            logger.error("Socket error: " + e.getMessage());
+            scheduleReconnect();
+        }
+    }
+
+    /**
+     * Wait, then try to connect again, doubling the wait each time. Runs on the executor thread.
+     */
+    private void scheduleReconnect() {
+        if(closed) return;
+        //Add some jitter so many clients dropped at once don't all come back at once
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        backoff = Math.min(MAX_BACKOFF, backoff * 2);
+        logger.info("Reconnecting to {} in {}ms", server, delay);
+        setState(ConnectionState.RECONNECTING);
+        executor.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forget a lost connection and start reconnecting. Runs on the executor thread.
+     *
+     * @param socket the socket which was lost
+     */
+    private void connectionLost(WebSocket socket) {
+        if(ws != socket) return;
+        ws = null;
+        if(heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        socket.disconnect();
+        if(closed) {
+            setState(ConnectionState.CLOSED);
+        } else {
+            scheduleReconnect();
+        }
+    }
+
+    /**
+     * Ping the server, and drop the connection if it has stopped answering. Runs on the executor thread.
+     */
+    private void heartbeat() {
+        var socket = ws;
+        if(socket == null) return;
+        long silent = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastPong);
+        if(silent > HEARTBEAT_INTERVAL * MISSED_HEARTBEATS) {
+            logger.warn("No answer from {} for {}ms, reconnecting", server, silent);
+            connectionLost(socket);
+            return;
+        }
+        pingSentAt = System.nanoTime();
+        socket.sendPing();
+    }
+
+    /**
+     * Send queued messages for as long as the communicator is open. Waits for a connection before each batch, takes
+     * as many messages as are waiting, and drops those replaced by a newer message in the same batch. If the
+     * connection is lost part way through a batch, the unsent messages are kept, ahead of everything still queued,
+     * and sent first once connected again. Runs on the writer thread.
+     */
+    private void write() {
+        var batch = new ArrayList<String>(MAX_BATCH);
+        try {
+            while(!closed) {
+                if(batch.isEmpty()) {
+                    batch.add(outbound.take());
                 }
-                @Override
-                public void onPingFrame(WebSocket webSocket, WebSocketFrame webSocketFrame) throws Exception {
-                    logger.info("Ping? Pong!");
+                var socket = awaitConnection();
+                if(socket == null) return;
+                outbound.drainTo(batch, MAX_BATCH - batch.size());
+                if(backpressured && outbound.remainingCapacity() > 0) {
+                    setBackpressure(false);
                 }
-            });
-
-            //Error handling
-            ws.addListener(new WebSocketAdapter() {
-                @Override
-                public void onTextMessage(WebSocket websocket, String message) throws Exception {
-                    if(message.startsWith("ERROR")) {
-                        logger.error(message);
-                    }
+
+                coalesce(batch);
+                int sent = 0;
+                //A socket which is no longer open silently throws sends away
+                while(sent < batch.size() && socket.isOpen()) {
+                    var message = batch.get(sent++);
+                    logger.debug("Sending message: " + message);
+                    socket.sendText(message);
                 }
-                @Override
-                public void handleCallbackError(WebSocket webSocket, Throwable throwable) throws Exception {
-                    logger.error("Callback Error:" + throwable.getMessage());
-                    throwable.printStackTrace();
+                batch.subList(0, sent).clear();
+                if(!batch.isEmpty()) {
+                    logger.warn("Connection lost, holding {} unsent messages", batch.size());
                 }
-                @Override
-                public void onError(WebSocket webSocket, WebSocketException e) throws Exception {
-                    logger.error("Error:" + e.getMessage());
-                    e.printStackTrace();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait until connected. Runs on the writer thread.
+     *
+     * @return the open socket, or null if the communicator was closed
+     * @throws InterruptedException if the writer was stopped
+     */
+    private WebSocket awaitConnection() throws InterruptedException {
+        synchronized (connectionLock) {
+            while(!closed) {
+                var socket = ws;
+                if(socket != null && socket.isOpen()) return socket;
+                connectionLock.wait(HEARTBEAT_INTERVAL);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove messages from a batch which a later message of the same kind makes pointless, such as an old board when
+     * a newer one is being sent anyway. The order of the other messages is kept.
+     *
+     * @param batch the messages to send, oldest first
+     */
+    private static void coalesce(List<String> batch) {
+        if(batch.size() < 2) return;
+        for(var kind : LATEST_ONLY) {
+            boolean seen = false;
+            for(int i = batch.size() - 1; i >= 0; i--) {
+                if(batch.get(i).startsWith(kind + " ")) {
+                    if(seen) batch.remove(i);
+                    seen = true;
                 }
-            });
+            }
+        }
+    }
 
-        } catch (Exception e){
-            logger.error("Socket error: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Tell the backpressure listener the queue has filled up or emptied
+     *
+     * @param full whether the queue is full
+     */
+    private void setBackpressure(boolean full) {
+        backpressured = full;
+        logger.warn(full ? "Outgoing queue is full" : "Outgoing queue has room again");
+        var listener = backpressureListener;
+        if(listener != null) {
+            listener.backpressure(full);
+        }
+    }
 
-            Alert error = new Alert(Alert.AlertType.ERROR,"Unable to communicate with the TetrECS server\n\n" + e.getMessage() + "\n\nPlease ensure you are connected to the VPN");
-            error.showAndWait();
-            System.exit(1);
+    /**
+     * Set the state of the connection, on the JavaFX thread
+     *
+     * @param newState the new state
+     */
+    private void setState(ConnectionState newState) {
+        try {
+            Platform.runLater(() -> state.set(newState));
+        } catch (IllegalStateException e) {
+            //No JavaFX toolkit, such as when running headless
+            state.set(newState);
         }
     }
 
     /**
-     * Send a message to the server
+     * Queue a message to send to the server. If not connected, the message is sent once the connection is made.
      *
      * @param message Message to send
+     * @return whether the message was queued, or false if the queue is full or the communicator is closed
+     */
+    public boolean send(String message) {
+        if(closed) {
+            logger.warn("Not sending, the connection is closed");
+            return false;
+        }
+        if(!outbound.offer(message)) {
+            if(!backpressured) {
+                setBackpressure(true);
+            }
+            logger.warn("Dropped message, the outgoing queue is full: " + message);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Send a request to the server and wait for its reply.
+     *
+     * The protocol has no request ids, but the server answers each connection in order, so a reply is matched to the
+     * oldest request waiting for that kind of reply. A read-only request, such as HISCORES, identical to the last one
+     * still waiting shares its reply rather than being sent again; any other request is always sent. An ERROR from the
+     * server fails the oldest waiting request whose command it names, and is otherwise left to the listeners.
+     *
+     * @param message the message to send
+     * @param reply the first word of the reply, such as HISCORES
+     * @return a future completed with the whole reply, or failed if there was an error or no reply in time
+     */
+    public CompletableFuture<String> request(String message, String reply) {
+        //Only share with the latest request, so a reply never misses a change made by a request in between
+        var latest = requests.peekLast();
+        if(latest != null && isShareable(message) && latest.message.equals(message) && latest.reply.equals(reply)) {
+            logger.info("Sharing the reply to {}", message);
+            return latest.future;
+        }
+
+        var request = new Request(message, reply);
+        requests.add(request);
+        request.future
+                .orTimeout(REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> requests.remove(request));
+        if(!send(message)) {
+            request.future.completeExceptionally(new IllegalStateException("Unable to send " + message));
+        }
+        return request.future;
+    }
+
+    /**
+     * Check whether a request only reads from the server, so identical copies can share a reply
+     *
+     * @param message the request
+     * @return whether its command is shareable
+     */
+    private static boolean isShareable(String message) {
+        var command = command(message);
+        for(var kind : SHAREABLE) {
+            if(kind.equals(command)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the command of a message, which is its first word
+     *
+     * @param message the message
+     * @return the command
      */
-    public void send(String message) {
-        logger.info("Sending message: " + message);
+    private static String command(String message) {
+        int space = message.indexOf(' ');
+        return space < 0 ? message : message.substring(0, space);
+    }
 
-        ws.sendText(message);
+    /**
+     * Check whether an error message names a command as one of its words
+     *
+     * @param error the error message
+     * @param command the command
+     * @return whether the command appears as a whole word
+     */
+    private static boolean names(String error, String command) {
+        for(var word : error.split("[^A-Za-z]+")) {
+            if(word.equals(command)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Complete the oldest request waiting for a message, if there is one. An ERROR only fails a request if it names
+     * that request's command, since errors about other messages would otherwise fail an unrelated request.
+     *
+     * @param message the message received
+     */
+    private void answer(String message) {
+        boolean error = message.startsWith("ERROR");
+        for(var request : requests) {
+            boolean matches = error
+                    ? names(message, command(request.message))
+                    : message.startsWith(request.reply + " ") || message.equals(request.reply);
+            if(matches) {
+                requests.remove(request);
+                if(error) {
+                    request.future.completeExceptionally(new IllegalStateException(message));
+                } else {
+                    request.future.complete(message);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Close the connection for good
+     */
+    public void close() {
+        closed = true;
+        synchronized (connectionLock) {
+            connectionLock.notifyAll();
+        }
+        synchronized (this) {
+            if(writer != null) {
+                writer.interrupt();
+            }
+        }
+        executor.execute(() -> {
+            var socket = ws;
+            if(socket != null) {
+                connectionLost(socket);
+            } else {
+                setState(ConnectionState.CLOSED);
+            }
+            executor.shutdown();
+        });
     }
 
     /**
@@ -108,6 +561,34 @@ public class Communicator {
         this.handlers.add(listener);
     }
 
+    /**
+     * Set the listener to call when the outgoing queue fills up or empties
+     *
+     * @param listener the listener
+     */
+    public void setOnBackpressure(BackpressureListener listener) {
+        this.backpressureListener = listener;
+    }
+
+    /**
+     * Set whether to ask the server to compress messages with permessage-deflate, from the next connection. Defaults
+     * to the tetrecs.compress system property.
+     *
+     * @param compression whether to compress
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Get the number of messages waiting to be sent
+     *
+     * @return queued messages
+     */
+    public int getQueuedCount() {
+        return outbound.size();
+    }
+
     /**
      * Clear all current listeners
      */
@@ -115,6 +596,34 @@ public class Communicator {
         this.handlers.clear();
     }
 
+    /**
+     * Get the state of the connection, to watch from the UI
+     *
+     * @return the connection state property
+     */
+    public ReadOnlyObjectProperty<ConnectionState> stateProperty() {
+        return state.getReadOnlyProperty();
+    }
+
+    /**
+     * Check whether the connection is open
+     *
+     * @return whether connected
+     */
+    public boolean isConnected() {
+        var socket = ws;
+        return socket != null && socket.isOpen();
+    }
+
+    /**
+     * Get the round trip time of the last answered heartbeat
+     *
+     * @return latency in milliseconds, or -1 if no heartbeat has been answered
+     */
+    public long getLatency() {
+        return latency;
+    }
+
     /** Receive a message from the server. Relay to any attached listeners
      *
      * @param websocket the socket
@@ -123,9 +632,86 @@ public class Communicator {
     private void receive(WebSocket websocket, String message) {
         logger.info("Received: " + message);
 
+        answer(message);
         for(CommunicationsListener handler : handlers) {
             handler.receiveCommunication(message);
         }
     }
 
+    /**
+     * A request waiting for its reply
+     */
+    private static class Request {
+        /**
+         * The message sent
+         */
+        private final String message;
+
+        /**
+         * The first word of the reply
+         */
+        private final String reply;
+
+        /**
+         * Completed with the reply
+         */
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+
+        /**
+         * Create a new request
+         *
+         * @param message the message sent
+         * @param reply the first word of the reply
+         */
+        private Request(String message, String reply) {
+            this.message = message;
+            this.reply = reply;
+        }
+    }
+
+    /**
+     * Listens to a web socket, passing messages on and noticing when the connection is lost
+     */
+    private class Listener extends WebSocketAdapter {
+        @Override
+        public void onTextMessage(WebSocket websocket, String message) throws Exception {
+            if(message.startsWith("ERROR")) {
+                logger.error(message);
+            }
+            Communicator.this.receive(websocket, message);
+        }
+
+        @Override
+        public void onPingFrame(WebSocket webSocket, WebSocketFrame webSocketFrame) throws Exception {
+            logger.info("Ping? Pong!");
+            lastPong = System.nanoTime();
+        }
+
+        @Override
+        public void onPongFrame(WebSocket webSocket, WebSocketFrame frame) throws Exception {
+            lastPong = System.nanoTime();
+            latency = TimeUnit.NANOSECONDS.toMillis(lastPong - pingSentAt);
+            logger.debug("Heartbeat answered in {}ms", latency);
+        }
+
+        @Override
+        public void onDisconnected(WebSocket webSocket, WebSocketFrame serverCloseFrame,
+                                   WebSocketFrame clientCloseFrame, boolean closedByServer) throws Exception {
+            logger.warn("Disconnected from {}{}", server, closedByServer ? " by the server" : "");
+            if(!executor.isShutdown()) {
+                executor.execute(() -> connectionLost(webSocket));
+            }
+        }
+
+        @Override
+        public void handleCallbackError(WebSocket webSocket, Throwable throwable) throws Exception {
+            logger.error("Callback Error:" + throwable.getMessage());
+            throwable.printStackTrace();
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, WebSocketException e) throws Exception {
+            logger.error("Error:" + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package uk.ac.soton.comp1206.network;
+
+/**
+ * The state of the Communicator's connection to the server
+ *
+ * @author Jesse Hardy
+ */
+public enum ConnectionState {
+    /**
+     * Not connected, and not trying to connect
+     */
+    DISCONNECTED,
+    /**
+     * Making the first connection
+     */
+    CONNECTING,
+    /**
+     * Connected, and the server is answering
+     */
+    CONNECTED,
+    /**
+     * The connection was lost or could not be made, and another attempt is waiting
+     */
+    RECONNECTING,
+    /**
+     * Closed for good
+     */
+    CLOSED
+}
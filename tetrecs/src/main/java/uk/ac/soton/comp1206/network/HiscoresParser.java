@@ -0,0 +1,123 @@
+package uk.ac.soton.comp1206.network;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Parses the scores in a HISCORES reply from the server, which holds one "name:score" line per score.
+ *
+ * The reply is read in one pass, straight from the message, and each score is handed to a Sink as soon as it is read,
+ * so no arrays or pairs are built along the way. A name may itself contain ':', so each line is split at its last
+ * ':'. Lines which are not a name and a whole number are skipped rather than failing the whole reply. The Sink is
+ * asked whether it wants each score before the name is copied out, so a long list costs little beyond the scores
+ * that are kept.
+ *
+ * @author Jesse Hardy
+ */
+public class HiscoresParser {
+
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(HiscoresParser.class);
+
+    /**
+     * The word a HISCORES reply starts with
+     */
+    private static final String PREFIX = "HISCORES";
+
+    /**
+     * Receives the scores as they are parsed
+     */
+    public interface Sink {
+
+        /**
+         * Check whether a score is wanted before its name is read
+         *
+         * @param score the score
+         * @return whether to pass it to {@link #score}
+         */
+        default boolean wants(int score) {
+            return true;
+        }
+
+        /**
+         * Handle a parsed score
+         *
+         * @param name the player's name
+         * @param score the score
+         */
+        void score(String name, int score);
+    }
+
+    /**
+     * Parse a HISCORES reply. The HISCORES word at the start is optional.
+     *
+     * @param message the reply
+     * @param sink receives each score, in the order they appear
+     * @return the number of scores read, whether or not the sink wanted them
+     */
+    public static int parse(String message, Sink sink) {
+        int length = message.length();
+        int position = 0;
+        if(message.startsWith(PREFIX)) {
+            position = PREFIX.length();
+            if(position < length && message.charAt(position) == ' ') position++;
+        }
+
+        int parsed = 0;
+        int skipped = 0;
+        while(position < length) {
+            //Find the end of the line and the last ':' on it
+            int start = position;
+            int colon = -1;
+            while(position < length && message.charAt(position) != '\n') {
+                if(message.charAt(position) == ':') colon = position;
+                position++;
+            }
+            int end = position;
+            position++;
+            if(end > start && message.charAt(end - 1) == '\r') end--;
+            if(end == start) continue;
+
+            long score = colon < 0 ? Long.MIN_VALUE : parseScore(message, colon + 1, end);
+            if(score == Long.MIN_VALUE) {
+                skipped++;
+                continue;
+            }
+            parsed++;
+            if(sink.wants((int) score)) {
+                sink.score(message.substring(start, colon), (int) score);
+            }
+        }
+
+        if(skipped > 0) {
+            logger.warn("Skipped {} malformed scores", skipped);
+        }
+        return parsed;
+    }
+
+    /**
+     * Read a whole number from part of a string, without making a new string
+     *
+     * @param text the string
+     * @param start the first character
+     * @param end one past the last character
+     * @return the number, or Long.MIN_VALUE if it is not a number that fits in an int
+     */
+    private static long parseScore(String text, int start, int end) {
+        while(start < end && text.charAt(start) == ' ') start++;
+        boolean negative = start < end && text.charAt(start) == '-';
+        if(negative) start++;
+        if(start == end) return Long.MIN_VALUE;
+
+        long value = 0;
+        for(int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if(c < '0' || c > '9') return Long.MIN_VALUE;
+            value = value * 10 + (c - '0');
+            if(value > Integer.MAX_VALUE) return Long.MIN_VALUE;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,210 @@
+package uk.ac.soton.comp1206.network;
+
+import javafx.util.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.Leaderboard;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ScoreCache keeps the last online scores received from the server, so they can be shown straight away instead
+ * of waiting on the network.
+ *
+ * The scores are refreshed in the background once they are older than the time to live, and the old scores are kept
+ * until new ones arrive, or if the refresh fails or takes too long. Only one refresh runs at a time. Each set of
+ * scores received is saved to a file, so the last known scores are there even when the game starts offline.
+ *
+ * @author Jesse Hardy
+ */
+public class ScoreCache {
+
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(ScoreCache.class);
+
+    /**
+     * The file the game keeps the online scores in
+     */
+    public static final Path ONLINE_FILE = Path.of("data", "online-scores.txt");
+
+    /**
+     * How long scores are fresh for, in milliseconds
+     */
+    private static final long TIME_TO_LIVE = 60_000;
+
+    /**
+     * How long to wait for the server before giving up on a refresh, in milliseconds
+     */
+    private static final long REFRESH_TIMEOUT = 5_000;
+
+    /**
+     * The communicator the scores are requested through
+     */
+    private final Communicator communicator;
+
+    /**
+     * The file the scores are saved in
+     */
+    private final Path file;
+
+    /**
+     * The most scores kept
+     */
+    private final int capacity;
+
+    /**
+     * The last known scores, highest first
+     */
+    private volatile List<Pair<String, Integer>> scores = List.of();
+
+    /**
+     * When the scores were received, in milliseconds since the epoch, or 0 if there are none
+     */
+    private volatile long updated;
+
+    /**
+     * The refresh currently running, if any
+     */
+    private CompletableFuture<List<Pair<String, Integer>>> refreshing;
+
+    /**
+     * Create a cache, loading any scores saved before
+     *
+     * @param communicator the communicator to request scores through
+     * @param file the file to save the scores in
+     * @param capacity the most scores to keep
+     */
+    public ScoreCache(Communicator communicator, Path file, int capacity) {
+        this.communicator = communicator;
+        this.file = file;
+        this.capacity = capacity;
+        load();
+    }
+
+    /**
+     * Get the last known scores. These may be stale, or empty if the scores have never been received.
+     *
+     * @return the scores, highest first
+     */
+    public List<Pair<String, Integer>> getScores() {
+        return scores;
+    }
+
+    /**
+     * Check whether the scores are older than the time to live
+     *
+     * @return whether the scores should be refreshed
+     */
+    public boolean isStale() {
+        return System.currentTimeMillis() - updated > TIME_TO_LIVE;
+    }
+
+    /**
+     * Mark the scores as stale, so the next check refreshes them. Used when a score has been submitted.
+     */
+    public void invalidate() {
+        updated = 0;
+    }
+
+    /**
+     * Request the scores from the server in the background. If a refresh is already running, it is shared.
+     *
+     * @return a future completed with the new scores, or failed if the server did not reply in time
+     */
+    public synchronized CompletableFuture<List<Pair<String, Integer>>> refresh() {
+        if(refreshing != null && !refreshing.isDone()) {
+            return refreshing;
+        }
+        logger.info("Refreshing the online scores");
+        refreshing = communicator.request("HISCORES", "HISCORES")
+                .thenApplyAsync(reply -> {
+                    var received = parse(reply);
+                    scores = received;
+                    updated = System.currentTimeMillis();
+                    save(received);
+                    return received;
+                })
+                .orTimeout(REFRESH_TIMEOUT, TimeUnit.MILLISECONDS);
+        refreshing.whenComplete((received, error) -> {
+            if(error != null) {
+                logger.error("Unable to refresh the online scores, keeping the last known: {}", error.toString());
+            }
+        });
+        return refreshing;
+    }
+
+    /**
+     * Parse the best scores out of a HISCORES reply
+     *
+     * @param reply the reply
+     * @return the scores, highest first
+     */
+    private List<Pair<String, Integer>> parse(String reply) {
+        var leaderboard = new Leaderboard(capacity);
+        HiscoresParser.parse(reply, new HiscoresParser.Sink() {
+            @Override
+            public boolean wants(int score) {
+                return leaderboard.rankOf(score) >= 0;
+            }
+
+            @Override
+            public void score(String name, int score) {
+                leaderboard.add(name, score);
+            }
+        });
+        return List.copyOf(leaderboard.getEntries());
+    }
+
+    /**
+     * Load the scores saved before. Their age is taken from when the file was written.
+     */
+    private void load() {
+        try {
+            scores = parse(Files.readString(file, StandardCharsets.UTF_8));
+            updated = Files.getLastModifiedTime(file).toMillis();
+            logger.info("Loaded {} cached online scores", scores.size());
+        } catch (NoSuchFileException e) {
+            logger.info("No cached online scores");
+        } catch (IOException e) {
+            logger.error("Unable to read the cached online scores from {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Save the scores, writing a temporary file and renaming it over the old one so a crash never leaves half a file
+     *
+     * @param received the scores to save
+     */
+    private void save(List<Pair<String, Integer>> received) {
+        var data = new StringBuilder();
+        for(var entry : received) {
+            data.append(entry.getKey()).append(':').append(entry.getValue()).append('\n');
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if(file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(temp, data, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to save the online scores to {}: {}", file, e.getMessage());
+        }
+    }
+}
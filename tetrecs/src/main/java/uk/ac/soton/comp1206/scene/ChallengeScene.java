@@ -2,6 +2,7 @@ package uk.ac.soton.comp1206.scene;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.geometry.Point2D;
@@ -16,6 +17,7 @@ import javafx.util.Duration;
 import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.component.CanvasGameBoard;
 import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.component.GameBoard;
@@ -26,13 +28,19 @@ import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
 import uk.ac.soton.comp1206.game.Multimedia;
+import uk.ac.soton.comp1206.game.ScoreStore;
+import uk.ac.soton.comp1206.game.Placement;
+import uk.ac.soton.comp1206.game.ReplayLog;
+import uk.ac.soton.comp1206.simulation.SearchPolicy;
+import uk.ac.soton.comp1206.simulation.TranspositionTable;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The Single Player challenge scene. Holds the UI for the single player challenge mode in the game.
@@ -77,6 +85,26 @@ public class ChallengeScene extends BaseScene {
      * A new timeline for the animation of the timer bar
      */
     private Timeline timeline = new Timeline();
+    /**
+     * Time the autoplayer may think about each move, in milliseconds
+     */
+    private static final long AUTOPLAY_BUDGET = 250;
+    /**
+     * Pause between autoplayed moves, so they can be followed on screen
+     */
+    private static final Duration AUTOPLAY_DELAY = Duration.millis(400);
+    /**
+     * The AI playing the game when autoplay is on, otherwise null
+     */
+    private SearchPolicy autoPlayer;
+    /**
+     * The thread the autoplayer waits for its search on, so the UI never blocks
+     */
+    private ExecutorService autoPlayThread;
+    /**
+     * Whether the game has ended, so the scores are only shown once
+     */
+    private boolean ended;
 
     /**
      * Create a new Single Player challenge scene
@@ -115,7 +143,7 @@ public class ChallengeScene extends BaseScene {
         var title = new Text("Challenge Mode");
         title.getStyleClass().add("title");
         VBox centreBox = new VBox();
-        board = new GameBoard(game.getGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
+        board = new CanvasGameBoard(game.getGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
         centreBox.getChildren().addAll(title, board);
         centreBox.setAlignment(Pos.TOP_CENTER);
         centreBox.setSpacing(50);
@@ -222,13 +250,35 @@ public class ChallengeScene extends BaseScene {
      * Is called when the user runs out of lives and runs the scoreScreen window
      */
     private void gameOver(){
+        //Backspace can end the game while the game itself is ending it
+        if (ended) return;
+        ended = true;
+        saveReplay(game.stop());
         Platform.runLater(() -> {
+            stopAutoPlay();
             Multimedia.stopMusic();
             timeline.stop();
             gameWindow.startScores(game);
         });
     }
 
+    /**
+     * Saves the replay of this game to the data/replays folder, so it can be played back later. The replay is
+     * written off the JavaFX thread once the game has stopped, and only if recording is turned on.
+     *
+     * @param replay the encoded replay from stopping the game
+     */
+    private void saveReplay(CompletableFuture<byte[]> replay){
+        replay.thenAcceptAsync(data -> {
+            if (data == null) return;
+            try {
+                ReplayLog.save(data);
+            } catch (IOException e) {
+                logger.error("Unable to save replay: " + e.getMessage());
+            }
+        });
+    }
+
     /**
      * This method resets the bar
      * @param lives
@@ -293,11 +343,11 @@ public class ChallengeScene extends BaseScene {
     private void hovered(GameBlock gameBlock, Boolean entered){
         if(previousBlockHighlighted != null) {
             previousBlockHighlighted.setHovered(false);
-            previousBlockHighlighted.paint();
+            previousBlockHighlighted.requestPaint();
         }
         previousBlockHighlighted = gameBlock;
         gameBlock.setHovered(entered);
-        gameBlock.paint();
+        gameBlock.requestPaint();
     }
 
     /**
@@ -350,24 +400,81 @@ public class ChallengeScene extends BaseScene {
     }
 
     /**
-     * This retrieves the local high score from the scores.txt file by
-     * getting the score of the first line.
-     * @return An Integer for the highest
+     * Turn autoplay on or off. While it is on, an AI searches for and plays each move.
      */
-    public Integer getHighScore(){
-        String filePath = "data/scores.txt";
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line = reader.readLine();
-            if(line == null || !line.contains(":")){
-                return 0;
-            }
-            String[] currentLine = line.split(":");
-            return Integer.valueOf(currentLine[1]);
+    private void toggleAutoPlay(){
+        if(autoPlayer != null) {
+            stopAutoPlay();
+            return;
+        }
+        logger.info("Autoplay on");
+        autoPlayer = new SearchPolicy(Runtime.getRuntime().availableProcessors(), AUTOPLAY_BUDGET, 12);
+        autoPlayer.setTranspositionTable(TranspositionTable.withMemory(32, TranspositionTable.Replacement.AGE_THEN_DEPTH));
+        autoPlayThread = Executors.newSingleThreadExecutor(task -> {
+            var thread = new Thread(task, "AutoPlay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestAutoMove();
+    }
+
+    /**
+     * Turn autoplay off, if it is on
+     */
+    private void stopAutoPlay(){
+        if(autoPlayer == null) return;
+        logger.info("Autoplay off, search cache {}", autoPlayer.getTranspositionTable());
+        autoPlayer.close();
+        autoPlayThread.shutdownNow();
+        autoPlayer = null;
+        autoPlayThread = null;
+    }
 
-        } catch (IOException e) {
-            System.out.println("An error occurred while reading the file: " + e.getMessage());
+    /**
+     * Ask the autoplayer for its next move. The search runs on the latest snapshot of the game in the background, then
+     * the move is sent to the game from the JavaFX thread.
+     */
+    private void requestAutoMove(){
+        var state = game.getSnapshot();
+        if(autoPlayer == null || state.isOver()) return;
+
+        var player = autoPlayer;
+        var current = state.getCurrentPiece();
+        var following = state.getFollowingPiece();
+        CompletableFuture.supplyAsync(() -> player.choose(state.getGrid(), current, following, state.getMultiplier()),
+                        autoPlayThread)
+                .thenAccept(move -> Platform.runLater(() -> playAutoMove(player, move, current, following)));
+    }
+
+    /**
+     * Make a move chosen by the autoplayer, then wait a moment before asking for the next one
+     *
+     * @param player the autoplayer which chose the move
+     * @param move the move, or null if there is nothing to play
+     * @param current the current piece the move was chosen for
+     * @param following the following piece the move was chosen for
+     */
+    private void playAutoMove(SearchPolicy player, Placement move, GamePiece current, GamePiece following){
+        if(autoPlayer != player) return;
+
+        //The game ignores the move if the timer has changed the pieces while the AI was thinking
+        if(move != null) {
+            game.play(move, current, following);
         }
-        return null;
+        var pause = new PauseTransition(AUTOPLAY_DELAY);
+        pause.setOnFinished(event -> {
+            if(autoPlayer == player) requestAutoMove();
+        });
+        pause.play();
+    }
+
+    /**
+     * This retrieves the local high score from the score store, which keeps it cached
+     * so the scores.txt file isn't read again.
+     * @return An Integer for the highest
+     */
+    public Integer getHighScore(){
+        return ScoreStore.local().getTopScore();
     }
 
     /**
@@ -391,6 +498,7 @@ public class ChallengeScene extends BaseScene {
         gameWindow.getScene().addEventFilter(KeyEvent.KEY_PRESSED, keyEvent -> {
             if (keyEvent.getCode() == KeyCode.ESCAPE) {
                 Platform.runLater(() -> {
+                    stopAutoPlay();
                     Multimedia.stopMusic();
                     game.shutDownTimer();
                     timeline.stop();
@@ -452,6 +560,9 @@ public class ChallengeScene extends BaseScene {
             if(keyEvent.getCode() == KeyCode.X){
                 blockEntered();
             }
+            if(keyEvent.getCode() == KeyCode.P){
+                toggleAutoPlay();
+            }
             if(keyEvent.getCode() == KeyCode.BACK_SPACE){
                 gameOver();
             }
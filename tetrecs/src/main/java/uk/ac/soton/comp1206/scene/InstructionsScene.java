@@ -1,6 +1,5 @@
 package uk.ac.soton.comp1206.scene;
 import javafx.geometry.Pos;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
@@ -13,8 +12,7 @@ import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
-import java.io.File;
-import java.net.MalformedURLException;
+import uk.ac.soton.comp1206.ui.Resources;
 
 /**
  * Creates a new scene to show the user how to play the game
@@ -68,14 +66,10 @@ public class InstructionsScene extends BaseScene {
         instructionsTitle.getStyleClass().add("title");
         middleBox.getChildren().add(instructionsTitle);
         //Instructions image
-        try {
-            var instructions = new ImageView(new Image(new File("src/main/resources/images/Instructions.png").toURL().toExternalForm()));
-            instructions.setFitWidth(500);
-            instructions.setPreserveRatio(true);
-            middleBox.getChildren().add(instructions);
-        } catch (MalformedURLException e) {
-            throw new RuntimeException(e);
-        }
+        var instructions = new ImageView(Resources.getImage("Instructions.png"));
+        instructions.setFitWidth(500);
+        instructions.setPreserveRatio(true);
+        middleBox.getChildren().add(instructions);
 
         var piecesTitle = new Text("Pieces");
         piecesTitle.getStyleClass().add("title");
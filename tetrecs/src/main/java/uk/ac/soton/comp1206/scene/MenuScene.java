@@ -6,7 +6,6 @@ import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.text.Text;
@@ -16,12 +15,11 @@ import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.game.Multimedia;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
+import uk.ac.soton.comp1206.ui.Resources;
 
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
 
 /**
  * The main menu of the game. Provides a gateway to the rest of the game.
@@ -67,7 +65,7 @@ public class MenuScene extends BaseScene {
         //Title
         try {
             // Create ImageView
-            ImageView title = new ImageView(new Image(new File("src/main/resources/images/TetrECS.png").toURI().toString()));
+            ImageView title = new ImageView(Resources.getImage("TetrECS.png"));
             title.setFitWidth(600);
             title.setPreserveRatio(true);
 
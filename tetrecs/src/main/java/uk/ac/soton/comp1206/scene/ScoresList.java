@@ -1,17 +1,22 @@
 package uk.ac.soton.comp1206.scene;
 
 import javafx.animation.FadeTransition;
-import javafx.beans.property.SimpleListProperty;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.util.Duration;
 import javafx.util.Pair;
+import uk.ac.soton.comp1206.event.LeaderboardListener;
+import uk.ac.soton.comp1206.game.Leaderboard;
 
 /**
  * ScoresList is a custom UI component which extends VBox to create an animated list of the online and
  * local scores.
  *
+ * The list can show a Leaderboard, and then only the rows which change are added or removed, rather than
+ * rebuilding the list.
+ *
  * @author Jesse Hardy
  */
 public class ScoresList extends VBox {
@@ -20,16 +25,15 @@ public class ScoresList extends VBox {
      */
     private final VBox scores;
     /**
-     * The list of the scores
+     * Whether the scores have been revealed, so new rows should fade in straight away
      */
-    private final SimpleListProperty<Pair<String, Integer>> scoresListProperty;
+    private boolean revealed;
     /**
      * Constructor for ScoresList
      *
      * @param title a {@link java.lang.String} object
      */
     public ScoresList(String title){
-        scoresListProperty = new SimpleListProperty<>();
         setPrefWidth(200);
         setSpacing(26);
         setPadding(new Insets(10,10,10,10));
@@ -44,12 +48,32 @@ public class ScoresList extends VBox {
     }
 
     /**
-     * Getter for the field scoresListProperty
+     * Show the entries of a leaderboard, and keep the list up to date as it changes. Changes made off the
+     * JavaFX thread are applied on it.
      *
-     * @return a {@link javafx.beans.property.SimpleListProperty} object
+     * @param leaderboard the leaderboard to show
      */
-    public SimpleListProperty<Pair<String, Integer>> getScoresListProperty(){
-        return this.scoresListProperty;
+    public void setLeaderboard(Leaderboard leaderboard){
+        scores.getChildren().clear();
+        for (Pair<String, Integer> score : leaderboard.getEntries()) {
+            addScores(score);
+        }
+        leaderboard.setOnChange(new LeaderboardListener() {
+            @Override
+            public void entryAdded(int rank, String name, int score) {
+                onFxThread(() -> insertScore(rank, name, score));
+            }
+
+            @Override
+            public void entryRemoved(int rank) {
+                onFxThread(() -> scores.getChildren().remove(rank));
+            }
+
+            @Override
+            public void cleared() {
+                onFxThread(() -> scores.getChildren().clear());
+            }
+        });
     }
 
     /**
@@ -58,15 +82,46 @@ public class ScoresList extends VBox {
      * @param score a {@link javafx.util.Pair} object
      */
     public void addScores(Pair<String, Integer> score){
-        var newScore = new Text(score.getKey()+": "+score.getValue());
+        insertScore(scores.getChildren().size(), score.getKey(), score.getValue());
+    }
+
+    /**
+     * Adds a score row at a position, fading it in if the list has already been revealed
+     *
+     * @param rank the position, from 0 for the top
+     * @param name the player's name
+     * @param score the score
+     */
+    private void insertScore(int rank, String name, int score){
+        var newScore = new Text(name+": "+score);
         newScore.getStyleClass().add("scoreitem");
         newScore.setOpacity(0);
-        scores.getChildren().add(newScore);
+        scores.getChildren().add(rank, newScore);
+        if (revealed) {
+            FadeTransition fadeTransition = new FadeTransition(Duration.millis(300), newScore);
+            fadeTransition.setFromValue(0);
+            fadeTransition.setToValue(1);
+            fadeTransition.play();
+        }
+    }
+
+    /**
+     * Run a change on the JavaFX thread
+     *
+     * @param change the change
+     */
+    private static void onFxThread(Runnable change){
+        if (Platform.isFxApplicationThread()) {
+            change.run();
+        } else {
+            Platform.runLater(change);
+        }
     }
     /**
      * Animates the custom UI component to show the scores one by one
      */
     public void reveal() {
+        revealed = true;
         // Loop through each score and animate its appearance
         for (int i = 0; i < scores.getChildren().size(); i++) {
             Text scoreText = (Text) scores.getChildren().get(i);
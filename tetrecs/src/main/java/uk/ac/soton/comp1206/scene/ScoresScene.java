@@ -1,12 +1,8 @@
 package uk.ac.soton.comp1206.scene;
 import javafx.application.Platform;
-import javafx.beans.property.SimpleListProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.TextField;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
@@ -17,16 +13,16 @@ import javafx.scene.text.Text;
 import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.event.CommunicationsListener;
 import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.Leaderboard;
 import uk.ac.soton.comp1206.game.Multimedia;
-import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.game.ScoreStore;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
-import java.io.*;
-import java.net.MalformedURLException;
+import uk.ac.soton.comp1206.ui.Resources;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -41,30 +37,22 @@ public class ScoresScene extends BaseScene {
      */
     private static final Logger logger = LogManager.getLogger(MenuScene.class);
     /**
-     * Creates an ArrayList to store the local scores
+     * The number of scores shown in each list
      */
-    public ArrayList<Pair<String, Integer>> scorePairs = new ArrayList<>();
+    public static final int SCORES_SHOWN = 10;
     /**
-     * Converts the ArrayList into an observable list
+     * The best local scores
      */
-    public ObservableList<Pair<String, Integer>> scorePairsObservable = FXCollections.observableArrayList(scorePairs);
-    /**
-     * Creates a wrapper around the observable list
-     */
-    public SimpleListProperty<Pair<String, Integer>> wrapper = new SimpleListProperty<>(scorePairsObservable);
+    private final Leaderboard localScores = new Leaderboard(SCORES_SHOWN);
 
     /**
      * Creates an instance of the Game
      */
     public Game game;
     /**
-     * A list of all the scores retrieved from the server
+     * The best scores retrieved from the server
      */
-    private final SimpleListProperty<Pair<String, Integer>> remoteScores;
-    /**
-     * The message that will be sent to the server
-     */
-    public String message;
+    private final Leaderboard remoteScores = new Leaderboard(SCORES_SHOWN);
     /**
      * The main Border Pane
      */
@@ -77,6 +65,22 @@ public class ScoresScene extends BaseScene {
      * Whether the user beat any of the online scores
      */
     public boolean userBeatOnlineScore;
+    /**
+     * Whether the online scores are known to be fresh, so the score can be checked against them
+     */
+    private boolean onlineConfirmed;
+    /**
+     * Whether the name prompt has been shown
+     */
+    private boolean promptShown;
+    /**
+     * The name the player entered, or null if they haven't yet
+     */
+    private String playerName;
+    /**
+     * The player's score sent to the server, kept in the online list when it is refreshed until the server has it
+     */
+    private Pair<String, Integer> pendingOnline;
 
     /**
      * Constructor for ScoresScene
@@ -90,7 +94,6 @@ public class ScoresScene extends BaseScene {
         logger.info("Creating the Scores Scene");
         this.userBeatLocalScore = false;
         this.userBeatOnlineScore = false;
-        this.remoteScores = new SimpleListProperty<>();
     }
 
     /**
@@ -123,118 +126,181 @@ public class ScoresScene extends BaseScene {
 
         scoresPane.getChildren().add(mainPane);
 
-        try {
-            var title = new ImageView(new Image(new File("src/main/resources/images/TetrECS.png").toURL().toExternalForm()));
-            title.setFitWidth(500);
-            title.setPreserveRatio(true);
-            var gameOverTitle = new Text("Game Over");
-            gameOverTitle.getStyleClass().add("bigtitle");
-            var highScoresTitle = new Text("High Scores");
-            highScoresTitle.getStyleClass().add("title");
-            VBox titleBox = new VBox(title, gameOverTitle, highScoresTitle);
-            mainPane.setTop(titleBox);
-            titleBox.setAlignment(Pos.CENTER);
-        } catch (MalformedURLException e) {
-            throw new RuntimeException(e);
-        }
+        var title = new ImageView(Resources.getImage("TetrECS.png"));
+        title.setFitWidth(500);
+        title.setPreserveRatio(true);
+        var gameOverTitle = new Text("Game Over");
+        gameOverTitle.getStyleClass().add("bigtitle");
+        var highScoresTitle = new Text("High Scores");
+        highScoresTitle.getStyleClass().add("title");
+        VBox titleBox = new VBox(title, gameOverTitle, highScoresTitle);
+        mainPane.setTop(titleBox);
+        titleBox.setAlignment(Pos.CENTER);
         loadAllScores();
 
     }
     /**
-     * Loads the onlineScores first and then loads the local scores and updates
-     * all the UI.
+     * Shows the last known online scores and the local scores straight away, then
+     * refreshes the online scores in the background if they are stale.
      */
     public void loadAllScores(){
         logger.info("Loading All Scores");
-        // Load online scores first
-        CompletableFuture<Void> onlineScoresFuture = loadOnlineScores();
-
-        // When online scores are loaded, load local scores and update UI
-        onlineScoresFuture.thenRunAsync(() -> {
-            loadLocalScores();
-            updateUI();
-        }, Platform::runLater);
+        var cache = gameWindow.getScoreCache();
+        //Nothing here waits on the network, so the scores render in the first frame
+        setRemoteScores(cache.getScores());
+        loadLocalScores();
+        //A stale or missing table can't say whether the score makes it until it has been refreshed
+        onlineConfirmed = !cache.isStale();
+        updateUI();
 
+        if (!onlineConfirmed) {
+            loadOnlineScores();
+        }
     }
     /**
-     * Loads the online scores from the server using the communicator
+     * Refreshes the online scores from the server through the score cache. When they
+     * arrive the list on screen is updated and the score is checked against them.
      *
      * @return a {@link java.util.concurrent.CompletableFuture} object
      */
     public CompletableFuture<Void> loadOnlineScores() {
-        final CompletableFuture<Void> future = new CompletableFuture<>();
-        Communicator communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
-        message = "HISCORES";
-        communicator.send(message);
-        CommunicationsListener listener = new CommunicationsListener() {
-            @Override
-            public void receiveCommunication(String communication) {
-                String receivedScores = communication.replace("HISCORES ", "");
-                String[] receivedScoresArray = receivedScores.split("\n");
-                ArrayList<Pair<String, Integer>> onlineScores = new ArrayList<>();
-                for (String pair : receivedScoresArray) {
-                    String[] newPairArray = pair.split(":");
-                    Pair<String, Integer> newPair = new Pair<>(newPairArray[0], Integer.parseInt(newPairArray[1]));
-                    onlineScores.add(newPair);
-                }
-                Platform.runLater(() -> {
-                    ObservableList<Pair<String, Integer>> newRemoteScores = FXCollections.observableArrayList();
-                    newRemoteScores.addAll(onlineScores);
-                    remoteScores.set(newRemoteScores);
-                });
-                future.complete(null);
+        //Change the table on the JavaFX thread, so it can't change while a list is being built from it
+        return gameWindow.getScoreCache().refresh().handleAsync((scores, error) -> {
+            if(error != null) {
+                //Without a fresh table the score is never submitted online
+                logger.error("Unable to load the online scores: " + error.getMessage());
+                return null;
             }
-        };
-        communicator.addListener(listener);
-        return future;
+            setRemoteScores(scores);
+            logger.info("Read {} online scores", scores.size());
+            onlineConfirmed = true;
+            checkOnlineScore();
+            return null;
+        }, Platform::runLater);
     }
 
     /**
-     * Updates the UI to add the appropriate online and local score lists and if the user
-     * needs to enter their name or not.
+     * Updates the online scores to match a new table, removing and adding only the rows
+     * which changed. The player's submitted score is kept until the server's table has it.
+     *
+     * @param scores the scores, highest first
      */
-    public void updateUI(){
-        VBox middleBox = new VBox();
-        if(scorePairsObservable.size() == 0){
-            this.userBeatLocalScore = true;
+    private void setRemoteScores(List<Pair<String, Integer>> scores){
+        var wanted = new ArrayList<>(scores);
+        if (pendingOnline != null && !wanted.contains(pendingOnline)) {
+            int rank = 0;
+            while (rank < wanted.size() && wanted.get(rank).getValue() >= pendingOnline.getValue()) rank++;
+            wanted.add(rank, pendingOnline);
         }
-        else if (game.getCurrentScore() > scorePairsObservable.get(scorePairsObservable.size() - 1).getValue()) {
-            this.userBeatLocalScore = true;
+        while (wanted.size() > SCORES_SHOWN) {
+            wanted.remove(wanted.size() - 1);
         }
-        if(remoteScores.size() == 0){
-            this.userBeatOnlineScore = true;
+
+        var unmatched = new HashMap<Pair<String, Integer>, Integer>();
+        for (Pair<String, Integer> score : wanted) {
+            unmatched.merge(score, 1, Integer::sum);
         }
-        else if (game.getCurrentScore() > remoteScores.get(remoteScores.getSize() - 1).getValue()) {
-            this.userBeatOnlineScore = true;
+        //Remove the rows which aren't wanted, from the bottom up so the ranks above stay the same
+        var current = remoteScores.getEntries();
+        for (int rank = current.size() - 1; rank >= 0; rank--) {
+            var score = current.get(rank);
+            if (unmatched.getOrDefault(score, 0) > 0) {
+                unmatched.merge(score, -1, Integer::sum);
+            } else {
+                remoteScores.remove(rank);
+            }
+        }
+        //Then add the new ones
+        for (Pair<String, Integer> score : wanted) {
+            if (unmatched.getOrDefault(score, 0) > 0) {
+                unmatched.merge(score, -1, Integer::sum);
+                remoteScores.add(score.getKey(), score.getValue());
+            }
         }
-        logger.info(scorePairsObservable.toString());
-        logger.info(userBeatLocalScore);
+    }
+
+    /**
+     * Checks whether the score makes a list of scores
+     *
+     * @param scores the list
+     * @return whether it is a positive score which would get a rank
+     */
+    private boolean beats(Leaderboard scores){
+        return game.getCurrentScore() > 0 && scores.rankOf(game.getCurrentScore()) >= 0;
+    }
+
+    /**
+     * Updates the UI to add the appropriate online and local score lists and if the user
+     * needs to enter their name or not.
+     */
+    public void updateUI(){
+        this.userBeatLocalScore = beats(localScores);
+        this.userBeatOnlineScore = onlineConfirmed && beats(remoteScores);
+        logger.info("Score {} beats local {}, online {} (confirmed {})", game.getCurrentScore(),
+                userBeatLocalScore, userBeatOnlineScore, onlineConfirmed);
         if (this.userBeatOnlineScore || this.userBeatLocalScore) {
-            logger.info("New high score");
-            Text text = new Text("Enter your name");
-            text.getStyleClass().add("title");
-            var enterName = new TextField();
-            var submit = new Button("Submit");
-            middleBox.getChildren().addAll(text, enterName, submit);
-            mainPane.setCenter(middleBox);
-            submit.setOnAction((actionEvent -> {
-                if (this.userBeatLocalScore) {
-                    scorePairsObservable.add(new Pair<>(enterName.getText(), game.getCurrentScore()));
-                }
-                if (this.userBeatOnlineScore) {
-                    remoteScores.add(new Pair<>(enterName.getText(), game.getCurrentScore()));
-                    writeOnlineScores(new Pair<>(enterName.getText(), game.getCurrentScore()));
-                }
-                mainPane.getChildren().remove(middleBox);
-                loadScoresUI();
-                loadOnlineScoresUI();
-            }));
+            showNamePrompt();
         } else {
             loadScoresUI();
             loadOnlineScoresUI();
         }
     }
 
+    /**
+     * Checks the score against the online scores once they are confirmed fresh. If it makes
+     * the table it is submitted, straight away if the name has already been entered,
+     * otherwise the name is asked for.
+     */
+    private void checkOnlineScore(){
+        this.userBeatOnlineScore = beats(remoteScores);
+        logger.info("Score {} beats online {}", game.getCurrentScore(), userBeatOnlineScore);
+        if (!this.userBeatOnlineScore) return;
+        if (playerName != null) {
+            submitOnline(playerName);
+        } else if (!promptShown) {
+            showNamePrompt();
+        }
+    }
+
+    /**
+     * Asks the player for their name, then saves the score to whichever lists it makes
+     */
+    private void showNamePrompt(){
+        logger.info("New high score");
+        promptShown = true;
+        VBox middleBox = new VBox();
+        Text text = new Text("Enter your name");
+        text.getStyleClass().add("title");
+        var enterName = new TextField();
+        var submit = new Button("Submit");
+        middleBox.getChildren().addAll(text, enterName, submit);
+        mainPane.setCenter(middleBox);
+        submit.setOnAction((actionEvent -> {
+            playerName = enterName.getText();
+            if (this.userBeatLocalScore) {
+                ScoreStore.local().add(playerName, game.getCurrentScore());
+                localScores.add(playerName, game.getCurrentScore());
+            }
+            //Otherwise it is submitted once the online scores are confirmed, if it makes them
+            if (this.userBeatOnlineScore) {
+                submitOnline(playerName);
+            }
+            mainPane.getChildren().remove(middleBox);
+            loadScoresUI();
+            loadOnlineScoresUI();
+        }));
+    }
+
+    /**
+     * Adds the score to the online list and sends it to the server
+     *
+     * @param name the player's name
+     */
+    private void submitOnline(String name){
+        pendingOnline = new Pair<>(name, game.getCurrentScore());
+        remoteScores.add(name, game.getCurrentScore());
+        writeOnlineScores(pendingOnline);
+    }
 
     /**
      * Sends a message to the server if a users score beats one of the online scores
@@ -242,19 +308,22 @@ public class ScoresScene extends BaseScene {
      * @param score a {@link javafx.util.Pair} object
      */
     public void writeOnlineScores(Pair<String, Integer> score){
-        Communicator communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
-        communicator.send("HISCORE "+score.getKey()+":"+score.getValue());
+        gameWindow.getCommunicator().request("HISCORE "+score.getKey()+":"+score.getValue(), "NEWSCORE")
+                .whenComplete((reply, error) -> {
+                    if(error != null) {
+                        logger.error("Unable to submit the score: " + error.getMessage());
+                    } else {
+                        logger.info("Score submitted: " + reply);
+                        gameWindow.getScoreCache().invalidate();
+                    }
+                });
     }
     /**
      * Loads the online scores list UI
      */
     public void loadOnlineScoresUI(){
-        sortByValueDescending(remoteScores);
         ScoresList scoresList = new ScoresList("Online Scores");
-        scoresList.getScoresListProperty().bindBidirectional(remoteScores);
-        for (Pair<String, Integer> scorePair : scoresList.getScoresListProperty()) {
-            scoresList.addScores(scorePair);
-        }
+        scoresList.setLeaderboard(remoteScores);
         mainPane.setRight(scoresList);
         scoresList.reveal();
     }
@@ -262,69 +331,21 @@ public class ScoresScene extends BaseScene {
      * Loads the local scores list UI
      */
     public void loadScoresUI(){
-        sortByValueDescending(scorePairsObservable);
         ScoresList scoresList = new ScoresList("Local Scores");
-        scoresList.getScoresListProperty().bindBidirectional(wrapper);
-        for (Pair<String, Integer> scorePair : scoresList.getScoresListProperty()) {
-            scoresList.addScores(scorePair);
-        }
+        scoresList.setLeaderboard(localScores);
         mainPane.setLeft(scoresList);
         scoresList.reveal();
-        writeScores();
-    }
-    /**
-     * Sorts a given observable list by descending order by the score
-     *
-     * @param list a {@link javafx.collections.ObservableList} object
-     */
-    public static void sortByValueDescending(ObservableList<Pair<String,Integer>> list) {
-        list.sort(new Comparator<Pair<String,Integer>>() {
-            @Override
-            public int compare(Pair<String,Integer> o1, Pair<String,Integer> o2) {
-                return o2.getValue().compareTo(o1.getValue()); // Reverse order
-            }
-        });
     }
     /**
-     * Reads the local scores.txt file
+     * Loads the local scores from the score store, which reads the scores.txt file once and keeps them sorted
      */
     public void loadLocalScores(){
-        String filePath = "data/scores.txt";
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if(line.contains(":")) {
-                    String[] currentLine = line.split(":");
-                    String name = currentLine[0];
-                    Integer score = Integer.valueOf(currentLine[1]);
-                    scorePairsObservable.add(new Pair<>(name, score));
-                }
-            }
-        } catch (IOException e) {
-            System.out.println("An error occurred while reading the file: " + e.getMessage());
-        }
-        logger.info("Local scores read {}", scorePairsObservable.toString());
-    }
-
-    /**
-     * Write the updates local scores to the scores.txt file
-     */
-    public void writeScores(){
-        StringBuilder data = new StringBuilder();
-        for(Pair<String, Integer> pairs: scorePairsObservable){
-            data.append(pairs.getKey()+":"+pairs.getValue().toString()+"\n");
-        }
-        String filename = "data/scores.txt";
-
-        try {
-            FileWriter writer = new FileWriter(filename);
-            writer.write(data.toString());
-            writer.close();
-            logger.info("Data written to file successfully.");
-        } catch (IOException e) {
-            System.out.println("An error occurred while writing to the file: " + e.getMessage());
-            e.printStackTrace();
+        localScores.clear();
+        for (Pair<String, Integer> score : ScoreStore.local().getScores()) {
+            //The store is sorted, so once one score misses the list the rest will too
+            if (localScores.add(score.getKey(), score.getValue()) < 0) break;
         }
+        logger.info("Local scores read {}", localScores.getEntries());
     }
 
 }
@@ -0,0 +1,165 @@
+package uk.ac.soton.comp1206.simulation;
+
+/**
+ * The results of a batch of simulated games: histograms of score, lines cleared, best multiplier streak and game
+ * length, plus how quickly the games ran.
+ *
+ * @author Jesse Hardy
+ */
+public class BatchReport {
+
+    /**
+     * Final score of each game
+     */
+    private final Histogram scores = new Histogram(500, 80);
+
+    /**
+     * Lines cleared in each game
+     */
+    private final Histogram lines = new Histogram(5, 80);
+
+    /**
+     * Highest multiplier reached in each game
+     */
+    private final Histogram multipliers = new Histogram(1, 30);
+
+    /**
+     * Pieces played in each game
+     */
+    private final Histogram pieces = new Histogram(25, 80);
+
+    /**
+     * Simulated length of each game, in seconds
+     */
+    private final Histogram seconds = new Histogram(30, 80);
+
+    /**
+     * Wall clock time taken to run the batch, in nanoseconds
+     */
+    private long elapsedNanos;
+
+    /**
+     * Number of threads the batch was run on
+     */
+    private int threads;
+
+    /**
+     * Record the result of one game
+     *
+     * @param score final score
+     * @param linesCleared lines cleared
+     * @param bestMultiplier highest multiplier reached
+     * @param piecesPlayed pieces played
+     * @param simulatedMillis simulated length of the game in milliseconds
+     */
+    public void record(int score, int linesCleared, int bestMultiplier, int piecesPlayed, long simulatedMillis) {
+        scores.record(score);
+        lines.record(linesCleared);
+        multipliers.record(bestMultiplier);
+        pieces.record(piecesPlayed);
+        seconds.record(simulatedMillis / 1000);
+    }
+
+    /**
+     * Add every game recorded in another report to this one
+     *
+     * @param other the report to add
+     */
+    public void merge(BatchReport other) {
+        scores.merge(other.scores);
+        lines.merge(other.lines);
+        multipliers.merge(other.multipliers);
+        pieces.merge(other.pieces);
+        seconds.merge(other.seconds);
+    }
+
+    /**
+     * Set how the batch was run, once it has finished
+     *
+     * @param elapsedNanos wall clock time taken in nanoseconds
+     * @param threads number of threads used
+     */
+    void setTiming(long elapsedNanos, int threads) {
+        this.elapsedNanos = elapsedNanos;
+        this.threads = threads;
+    }
+
+    /**
+     * Get the number of games recorded
+     *
+     * @return number of games
+     */
+    public long getGames() {
+        return scores.getCount();
+    }
+
+    /**
+     * Get the number of games simulated per second of wall clock time
+     *
+     * @return games per second
+     */
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getGames() / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Get the histogram of final scores
+     *
+     * @return scores histogram
+     */
+    public Histogram getScores() {
+        return scores;
+    }
+
+    /**
+     * Get the histogram of lines cleared
+     *
+     * @return lines histogram
+     */
+    public Histogram getLines() {
+        return lines;
+    }
+
+    /**
+     * Get the histogram of the highest multiplier reached
+     *
+     * @return multiplier histogram
+     */
+    public Histogram getMultipliers() {
+        return multipliers;
+    }
+
+    /**
+     * Get the histogram of pieces played
+     *
+     * @return pieces histogram
+     */
+    public Histogram getPieces() {
+        return pieces;
+    }
+
+    /**
+     * Get the histogram of simulated game length in seconds
+     *
+     * @return length histogram
+     */
+    public Histogram getSeconds() {
+        return seconds;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Format the whole report as text
+     */
+    @Override
+    public String toString() {
+        return String.format("%d games on %d threads in %.3f s (%.0f games/s)%n", getGames(), threads,
+                elapsedNanos / 1e9, getGamesPerSecond())
+                + scores.format("Score")
+                + lines.format("Lines cleared")
+                + multipliers.format("Best multiplier")
+                + pieces.format("Pieces played")
+                + seconds.format("Game length (s)");
+    }
+}
@@ -0,0 +1,283 @@
+package uk.ac.soton.comp1206.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.game.GameEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * Runs a batch of independent, seeded games headlessly across every core and collects their results into a
+ * BatchReport. Used for balancing the scoring, levels and timer of the game.
+ *
+ * Every game is played by a PlacementPolicy. Each player takes a fixed simulated time to make a move, and loses a
+ * life when that is longer than the timer allows or when it has no move to make.
+ *
+ * @author Jesse Hardy
+ */
+public class BatchSimulator {
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(BatchSimulator.class);
+
+    /**
+     * Number of games each task plays
+     */
+    private static final int CHUNK_SIZE = 256;
+
+    /**
+     * Creates the policy for each chunk of games from a seed
+     */
+    private final LongFunction<PlacementPolicy> policyFactory;
+
+    /**
+     * Number of columns in each game
+     */
+    private int cols = 5;
+
+    /**
+     * Number of rows in each game
+     */
+    private int rows = 5;
+
+    /**
+     * Number of threads to run games on
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Simulated time each move takes, in milliseconds
+     */
+    private long moveTimeMillis = 2000;
+
+    /**
+     * Number of pieces after which a game is stopped, so strong policies still finish
+     */
+    private int maxPieces = 5000;
+
+    /**
+     * Create a new simulator whose games are played by the given policy
+     *
+     * @param policyFactory creates a policy from a seed, called once per chunk of games
+     */
+    public BatchSimulator(LongFunction<PlacementPolicy> policyFactory) {
+        this.policyFactory = policyFactory;
+    }
+
+    /**
+     * Run a batch of games. Game i is played with seed baseSeed + i, so a batch gives the same results however many
+     * threads it is run on.
+     *
+     * @param games number of games to play
+     * @param baseSeed seed of the first game
+     * @return the combined results
+     * @throws InterruptedException if interrupted while waiting for the games to finish
+     */
+    public BatchReport run(int games, long baseSeed) throws InterruptedException {
+        logger.info("Simulating {} games on {} threads", games, threads);
+        long start = System.nanoTime();
+
+        //Split the games into fixed size chunks, so the load evens out and the results don't depend on the threads
+        var executor = Executors.newFixedThreadPool(threads);
+        List<Future<BatchReport>> results = new ArrayList<>();
+        for(int first = 0; first < games; first += CHUNK_SIZE) {
+            int chunkFirst = first;
+            int chunkLast = Math.min(games, first + CHUNK_SIZE);
+            results.add(executor.submit(() -> runChunk(baseSeed, chunkFirst, chunkLast)));
+        }
+        executor.shutdown();
+
+        var report = new BatchReport();
+        try {
+            for(Future<BatchReport> result : results) {
+                report.merge(result.get());
+            }
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        }
+
+        report.setTiming(System.nanoTime() - start, threads);
+        return report;
+    }
+
+    /**
+     * Play the games from first (inclusive) to last (exclusive) on the calling thread
+     *
+     * @param baseSeed seed of game 0
+     * @param first the first game
+     * @param last the game after the last
+     * @return the results of these games
+     */
+    private BatchReport runChunk(long baseSeed, int first, int last) {
+        var report = new BatchReport();
+        var policy = policyFactory.apply(baseSeed ^ (0x9E3779B97F4A7C15L * (first + 1)));
+        var stats = new GameStats();
+        for(int game = first; game < last; game++) {
+            playGame(baseSeed + game, policy, stats, report);
+        }
+        return report;
+    }
+
+    /**
+     * Play a single game to the end and record it
+     *
+     * @param seed the seed of the game
+     * @param policy the player
+     * @param stats listener to collect the game's stats
+     * @param report where to record the result
+     */
+    private void playGame(long seed, PlacementPolicy policy, GameStats stats, BatchReport report) {
+        var engine = new GameEngine(cols, rows, seed);
+        stats.reset();
+        engine.setListener(stats);
+        engine.start();
+
+        int pieces = 0;
+        long simulatedMillis = 0;
+        while(!engine.isOver() && pieces < maxPieces) {
+            var move = policy.choose(engine);
+            if(move == null || moveTimeMillis >= engine.getTimerDelay()) {
+                simulatedMillis += engine.getTimerDelay();
+                engine.tick();
+                continue;
+            }
+
+            simulatedMillis += moveTimeMillis;
+            if(move.applyTo(engine)) {
+                pieces++;
+            } else {
+                //An illegal move wastes the turn, the same as making no move
+                simulatedMillis += engine.getTimerDelay() - moveTimeMillis;
+                engine.tick();
+            }
+        }
+
+        report.record(engine.getScore(), stats.lines, stats.bestMultiplier, pieces, simulatedMillis);
+    }
+
+    /**
+     * Set the size of the board
+     *
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public void setBoardSize(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    /**
+     * Set the number of threads to run games on
+     *
+     * @param threads number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set the simulated time each move takes
+     *
+     * @param moveTimeMillis time per move in milliseconds
+     */
+    public void setMoveTimeMillis(long moveTimeMillis) {
+        this.moveTimeMillis = moveTimeMillis;
+    }
+
+    /**
+     * Set the number of pieces after which a game is stopped
+     *
+     * @param maxPieces maximum pieces per game
+     */
+    public void setMaxPieces(int maxPieces) {
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Run a batch from the command line and print the report.
+     *
+     * Arguments are: number of games (default 100000), threads (default all cores), base seed (default 0) and policy
+     * (default random, or search).
+     *
+     * @param args commandline arguments
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        String policy = args.length > 3 ? args[3] : "random";
+
+        var simulator = new BatchSimulator(policyFactory(policy));
+        simulator.setThreads(threads);
+        System.out.print(simulator.run(games, seed));
+    }
+
+    /**
+     * Get the factory for a policy by name
+     *
+     * @param name the policy name
+     * @return the factory for that policy
+     */
+    private static LongFunction<PlacementPolicy> policyFactory(String name) {
+        return switch (name) {
+            case "random" -> RandomPolicy::new;
+            //Searches on the simulation thread with no time limit, so results don't depend on how fast it runs
+            case "search" -> seed -> {
+                var policy = new SearchPolicy(1, 0, 6);
+                var table = new TranspositionTable(1 << 16, TranspositionTable.Replacement.AGE_THEN_DEPTH);
+                policy.setTranspositionTable(table);
+                return policy;
+            };
+            default -> throw new IllegalArgumentException("Unknown policy: " + name);
+        };
+    }
+
+    /**
+     * Collects the lines cleared and best multiplier of a game from its events
+     */
+    private static class GameStats implements GameEventListener {
+
+        /**
+         * Lines cleared so far
+         */
+        private int lines;
+
+        /**
+         * Highest multiplier reached so far
+         */
+        private int bestMultiplier;
+
+        /**
+         * Clear the stats for a new game
+         */
+        private void reset() {
+            lines = 0;
+            bestMultiplier = 1;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void linesCleared(int lines, long[] mask) {
+            this.lines += lines;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void statsChanged(int score, int multiplier, int level, int lives) {
+            bestMultiplier = Math.max(bestMultiplier, multiplier);
+        }
+    }
+}
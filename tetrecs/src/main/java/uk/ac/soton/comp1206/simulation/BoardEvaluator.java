@@ -0,0 +1,78 @@
+package uk.ac.soton.comp1206.simulation;
+
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * Scores how good a board is to keep playing on, in roughly the same units as points, for the SearchPolicy.
+ *
+ * Boards are better with fewer blocks on them, with rows and columns close to being cleared, and with few holes
+ * (empty cells boxed in on every side, which only the Dot can fill).
+ *
+ * @author Jesse Hardy
+ */
+public class BoardEvaluator {
+
+    /**
+     * Penalty for each block on the board
+     */
+    private static final double BLOCK_WEIGHT = 6;
+
+    /**
+     * Penalty for each hole
+     */
+    private static final double HOLE_WEIGHT = 35;
+
+    /**
+     * Reward for the square of the number of blocks in each row and column
+     */
+    private static final double LINE_WEIGHT = 1.5;
+
+    /**
+     * Evaluate a board
+     *
+     * @param grid the board
+     * @return the value of the board, higher is better
+     */
+    public double evaluate(Grid grid) {
+        int cols = grid.getCols();
+        int rows = grid.getRows();
+        int blocks = 0;
+        int holes = 0;
+        int lineFill = 0;
+
+        for(int y = 0; y < rows; y++) {
+            int inRow = 0;
+            for(int x = 0; x < cols; x++) {
+                if(grid.isOccupied(x, y)) {
+                    inRow++;
+                } else if(isBlocked(grid, x - 1, y) && isBlocked(grid, x + 1, y)
+                        && isBlocked(grid, x, y - 1) && isBlocked(grid, x, y + 1)) {
+                    holes++;
+                }
+            }
+            blocks += inRow;
+            lineFill += inRow * inRow;
+        }
+        for(int x = 0; x < cols; x++) {
+            int inCol = 0;
+            for(int y = 0; y < rows; y++) {
+                if(grid.isOccupied(x, y)) inCol++;
+            }
+            lineFill += inCol * inCol;
+        }
+
+        return LINE_WEIGHT * lineFill - BLOCK_WEIGHT * blocks - HOLE_WEIGHT * holes;
+    }
+
+    /**
+     * Check whether a cell is occupied or off the board
+     *
+     * @param grid the board
+     * @param x column
+     * @param y row
+     * @return whether no block can go there
+     */
+    private static boolean isBlocked(Grid grid, int x, int y) {
+        return x < 0 || x >= grid.getCols() || y < 0 || y >= grid.getRows() || grid.isOccupied(x, y);
+    }
+}
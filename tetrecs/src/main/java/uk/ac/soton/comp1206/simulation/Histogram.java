@@ -0,0 +1,170 @@
+package uk.ac.soton.comp1206.simulation;
+
+/**
+ * A fixed-width histogram of non-negative values, with a final bucket collecting everything above the range. Each
+ * simulation thread fills its own histogram and they are merged at the end, so no locking is needed.
+ *
+ * @author Jesse Hardy
+ */
+public class Histogram {
+
+    /**
+     * The width of the values covered by each bucket
+     */
+    private final long bucketWidth;
+
+    /**
+     * The number of values in each bucket. The last bucket holds everything beyond the range.
+     */
+    private final long[] counts;
+
+    /**
+     * The number of values recorded
+     */
+    private long count;
+
+    /**
+     * The sum of the values recorded
+     */
+    private long sum;
+
+    /**
+     * The smallest value recorded
+     */
+    private long min = Long.MAX_VALUE;
+
+    /**
+     * The largest value recorded
+     */
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Create a new empty histogram
+     *
+     * @param bucketWidth the width of the values covered by each bucket
+     * @param buckets the number of buckets, including the overflow bucket
+     */
+    public Histogram(long bucketWidth, int buckets) {
+        this.bucketWidth = bucketWidth;
+        this.counts = new long[buckets];
+    }
+
+    /**
+     * Record a value
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        int bucket = (int) Math.min(counts.length - 1, Math.max(0, value) / bucketWidth);
+        counts[bucket]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add every value recorded in another histogram of the same shape to this one
+     *
+     * @param other the histogram to add
+     */
+    public void merge(Histogram other) {
+        if(other.bucketWidth != bucketWidth || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge histograms of different shapes");
+        }
+        for(int bucket = 0; bucket < counts.length; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Create an empty histogram of the same shape as this one
+     *
+     * @return the new histogram
+     */
+    public Histogram emptyCopy() {
+        return new Histogram(bucketWidth, counts.length);
+    }
+
+    /**
+     * Estimate the value below which the given fraction of values fall
+     *
+     * @param fraction the fraction, from 0 to 1
+     * @return the upper edge of the bucket containing that value
+     */
+    public long percentile(double fraction) {
+        long target = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for(int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if(seen >= target && seen > 0) {
+                return bucket == counts.length - 1 ? max : Math.min(max, (bucket + 1) * bucketWidth - 1);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get the number of values recorded
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the mean of the values recorded
+     *
+     * @return the mean, or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Get the smallest value recorded
+     *
+     * @return the minimum, or 0 if nothing has been recorded
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Get the largest value recorded
+     *
+     * @return the maximum, or 0 if nothing has been recorded
+     */
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * Format this histogram as a text table with a bar for each non-empty bucket
+     *
+     * @param title the heading for the table
+     * @return the formatted histogram
+     */
+    public String format(String title) {
+        var text = new StringBuilder();
+        text.append(String.format("%s: mean %.1f, min %d, p50 %d, p90 %d, p99 %d, max %d%n", title, getMean(),
+                getMin(), percentile(0.5), percentile(0.9), percentile(0.99), getMax()));
+
+        long largest = 1;
+        for(long bucketCount : counts) largest = Math.max(largest, bucketCount);
+        for(int bucket = 0; bucket < counts.length; bucket++) {
+            if(counts[bucket] == 0) continue;
+            String range = bucket == counts.length - 1
+                    ? (bucket * bucketWidth) + "+"
+                    : (bucket * bucketWidth) + "-" + ((bucket + 1) * bucketWidth - 1);
+            int bar = (int) Math.max(1, 40 * counts[bucket] / largest);
+            text.append(String.format("  %15s %10d %s%n", range, counts[bucket], "#".repeat(bar)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,21 @@
+package uk.ac.soton.comp1206.simulation;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.Placement;
+
+/**
+ * A PlacementPolicy decides which move a simulated player makes. Each chunk of simulated games gets its own policy,
+ * so implementations do not need to be thread safe.
+ *
+ * @author Jesse Hardy
+ */
+public interface PlacementPolicy {
+
+    /**
+     * Choose the next move in the given game
+     *
+     * @param engine the game being played, which should not be changed
+     * @return the move to make, or null to make no move and let the timer run out
+     */
+    public Placement choose(GameEngine engine);
+}
@@ -0,0 +1,39 @@
+package uk.ac.soton.comp1206.simulation;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.Placement;
+
+import java.util.SplittableRandom;
+
+/**
+ * A PlacementPolicy which plays uniformly at random among every legal move, including swapping and rotating. Used as
+ * the baseline player when balancing the game.
+ *
+ * @author Jesse Hardy
+ */
+public class RandomPolicy implements PlacementPolicy {
+
+    /**
+     * The random source for this policy
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Create a new RandomPolicy
+     *
+     * @param seed the seed for choosing moves
+     */
+    public RandomPolicy(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Placement choose(GameEngine engine) {
+        var moves = engine.getLegalPlacements();
+        if(moves.isEmpty()) return null;
+        return moves.get(random.nextInt(moves.size()));
+    }
+}
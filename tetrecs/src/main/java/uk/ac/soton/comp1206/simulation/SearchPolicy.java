@@ -0,0 +1,375 @@
+package uk.ac.soton.comp1206.simulation;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.Placement;
+import uk.ac.soton.comp1206.game.Zobrist;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A PlacementPolicy which searches for the best move, used for autoplay and as a strong headless player.
+ *
+ * Every move of the current piece, and of the following piece after a swap, is scored by the points it makes plus a
+ * BoardEvaluator score of the board it leaves. The best of these are then searched deeper: each is followed by the
+ * best plays of the remaining piece, then by the average over every possible random piece after that (expectimax).
+ * Only the best few moves are kept at each level (a beam), so the search stays small.
+ *
+ * The deeper searches run in parallel on the policy's own worker threads. When given a move time budget the policy
+ * always answers within it, using the best fully searched move found so far, or the best one-move score if none are.
+ *
+ * Given a TranspositionTable, searched positions are cached by the Zobrist hash of the board occupancy, multiplier
+ * and piece to play, since the same boards come up again and again within a move and from one move to the next.
+ *
+ * @author Jesse Hardy
+ */
+public class SearchPolicy implements PlacementPolicy, AutoCloseable {
+
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(SearchPolicy.class);
+
+    /**
+     * Points counted against a board where a piece cannot be played, roughly the cost of losing a life
+     */
+    private static final double LIFE_PENALTY = 400;
+
+    /**
+     * Scores boards
+     */
+    private final BoardEvaluator evaluator = new BoardEvaluator();
+
+    /**
+     * Threads running the deeper searches, or null to search on the calling thread
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Time allowed for each move in nanoseconds, or 0 for no limit
+     */
+    private final long budgetNanos;
+
+    /**
+     * The number of moves kept at each level of the search
+     */
+    private final int beamWidth;
+
+    /**
+     * Cache of searched positions, or null for none
+     */
+    private TranspositionTable table;
+
+    /**
+     * Create a new SearchPolicy
+     *
+     * @param threads number of threads to search on, 1 to search on the calling thread only
+     * @param moveBudgetMillis time allowed for each move in milliseconds, or 0 for no limit
+     * @param beamWidth the number of moves kept at each level of the search
+     */
+    public SearchPolicy(int threads, long moveBudgetMillis, int beamWidth) {
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(moveBudgetMillis);
+        this.beamWidth = Math.max(1, beamWidth);
+        if(threads > 1) {
+            var count = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(threads, task -> {
+                var thread = new Thread(task, "Search-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            workers = null;
+        }
+    }
+
+    /**
+     * Set the cache of searched positions. It may be shared with other policies.
+     *
+     * @param table the cache, or null for none
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Get the cache of searched positions
+     *
+     * @return the cache, or null if there is none
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Placement choose(GameEngine engine) {
+        return choose(engine.getGrid(), engine.getCurrentPiece(), engine.getFollowingPiece(), engine.getMultiplier());
+    }
+
+    /**
+     * Choose the best move from a game state. The grid is only read, so a copy of a live game's grid can be searched
+     * on another thread while the game carries on.
+     *
+     * @param grid the board
+     * @param current the current piece
+     * @param following the following piece
+     * @param multiplier the current multiplier
+     * @return the best move, or null if neither piece can be played
+     */
+    public Placement choose(Grid grid, GamePiece current, GamePiece following, int multiplier) {
+        long start = System.nanoTime();
+        //Leave a little of the budget to collect the results
+        long deadline = budgetNanos > 0 ? start + budgetNanos - Math.min(budgetNanos / 10, 5_000_000) : Long.MAX_VALUE;
+        if(table != null) table.newSearch();
+
+        //Score every first move on its own, which is also the answer if the deeper search runs out of time
+        List<Node> roots = new ArrayList<>();
+        expand(grid, current, false, multiplier, roots);
+        expand(grid, following, true, multiplier, roots);
+        if(roots.isEmpty()) return null;
+        roots.sort(Comparator.comparingDouble((Node node) -> node.value).reversed());
+        List<Node> beam = roots.subList(0, Math.min(beamWidth, roots.size()));
+
+        //Search the best first moves deeper, in parallel if possible
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int searched = 0;
+        if(workers == null) {
+            for(Node root : beam) {
+                double value = deepValue(root, root.placement.isSwap() ? current : following, deadline);
+                if(Double.isNaN(value)) break;
+                searched++;
+                if(value > bestValue) {
+                    bestValue = value;
+                    best = root;
+                }
+            }
+        } else {
+            List<Future<Double>> results = new ArrayList<>(beam.size());
+            for(Node root : beam) {
+                var remaining = root.placement.isSwap() ? current : following;
+                results.add(workers.submit(() -> deepValue(root, remaining, deadline)));
+            }
+            for(int i = 0; i < beam.size(); i++) {
+                double value;
+                try {
+                    value = budgetNanos > 0
+                            ? results.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                            : results.get(i).get();
+                } catch (TimeoutException e) {
+                    //Out of time for this move, but later ones may already be done
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    logger.error("Search failed", e.getCause());
+                    continue;
+                }
+                if(Double.isNaN(value)) continue;
+                searched++;
+                if(value > bestValue) {
+                    bestValue = value;
+                    best = beam.get(i);
+                }
+            }
+            for(Future<Double> result : results) result.cancel(false);
+        }
+
+        if(best == null) best = roots.get(0);
+        logger.trace("Searched {} of {} moves in {} us, playing {}", searched, roots.size(),
+                (System.nanoTime() - start) / 1000, best.placement);
+        return best.placement;
+    }
+
+    /**
+     * Work out the value of a first move by playing the remaining piece after it, then averaging over the random
+     * piece after that
+     *
+     * @param root the first move
+     * @param remaining the piece left to play after it
+     * @param deadline the time by which to give up, from System.nanoTime
+     * @return the value of the move, or NaN if the deadline passed first
+     */
+    private double deepValue(Node root, GamePiece remaining, long deadline) {
+        long key = root.grid.getOccupancyHash() ^ Zobrist.multiplier(root.multiplier) ^ Zobrist.piece(0, remaining);
+        if(table != null) {
+            long cached = table.probe(key);
+            if(cached != 0) return root.gain + TranspositionTable.valueOf(cached);
+        }
+
+        List<Node> replies = new ArrayList<>();
+        expand(root.grid, remaining, false, root.multiplier, replies);
+        if(replies.isEmpty()) return root.value - LIFE_PENALTY;
+        replies.sort(Comparator.comparingDouble((Node node) -> node.value).reversed());
+
+        double best = Double.NEGATIVE_INFINITY;
+        Placement bestReply = null;
+        long[] mask = root.grid.createMask();
+        for(Node reply : replies.subList(0, Math.min(beamWidth, replies.size()))) {
+            double expected = expectedValue(reply.grid, reply.multiplier, mask, deadline);
+            if(Double.isNaN(expected)) return Double.NaN;
+            if(reply.gain + expected > best) {
+                best = reply.gain + expected;
+                bestReply = reply.placement;
+            }
+        }
+        //Round to the precision the table stores, so a search gives the same answer with or without it
+        best = (float) best;
+        if(table != null) table.store(key, best, bestReply, 2);
+        return root.gain + best;
+    }
+
+    /**
+     * Work out the average value of a board over every random piece which could come next, assuming the best move
+     * is made with each
+     *
+     * @param grid the board
+     * @param multiplier the multiplier
+     * @param mask reusable mask for clearing lines
+     * @param deadline the time by which to give up, from System.nanoTime
+     * @return the expected value of the board, or NaN if the deadline passed first
+     */
+    private double expectedValue(Grid grid, int multiplier, long[] mask, long deadline) {
+        long key = grid.getOccupancyHash() ^ Zobrist.multiplier(multiplier);
+        if(table != null) {
+            long cached = table.probe(key);
+            if(cached != 0) return TranspositionTable.valueOf(cached);
+        }
+
+        double total = 0;
+        for(int id = 0; id < GamePiece.PIECES; id++) {
+            if(System.nanoTime() > deadline) return Double.NaN;
+            var piece = GamePiece.createPiece(id);
+            double best = evaluator.evaluate(grid) - LIFE_PENALTY;
+            for(int rotation = 0; rotation < piece.getRotations(); rotation++) {
+                var rotated = piece.rotated(rotation);
+                for(int y = 0; y < grid.getRows(); y++) {
+                    for(int x = 0; x < grid.getCols(); x++) {
+                        if(!grid.canPlayPiece(rotated, x, y)) continue;
+                        var after = grid.copy();
+                        int gain = play(after, rotated, x, y, multiplier, mask);
+                        best = Math.max(best, gain + evaluator.evaluate(after));
+                    }
+                }
+            }
+            total += best;
+        }
+        double expected = (float) (total / GamePiece.PIECES);
+        if(table != null) table.store(key, expected, null, 1);
+        return expected;
+    }
+
+    /**
+     * Add every legal move of a piece on a board to a list, each with the board it leaves and its score
+     *
+     * @param grid the board
+     * @param piece the piece to play
+     * @param swap whether the move needs a swap first
+     * @param multiplier the multiplier
+     * @param nodes the list to add the moves to
+     */
+    private void expand(Grid grid, GamePiece piece, boolean swap, int multiplier, List<Node> nodes) {
+        long[] mask = grid.createMask();
+        for(int rotation = 0; rotation < piece.getRotations(); rotation++) {
+            var rotated = piece.rotated(rotation);
+            for(int y = 0; y < grid.getRows(); y++) {
+                for(int x = 0; x < grid.getCols(); x++) {
+                    if(!grid.canPlayPiece(rotated, x, y)) continue;
+                    var after = grid.copy();
+                    int gain = play(after, rotated, x, y, multiplier, mask);
+                    nodes.add(new Node(new Placement(x, y, rotation, swap), after, gain,
+                            gain > 0 ? multiplier + 1 : 1, gain + evaluator.evaluate(after)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Play a piece and clear any lines it completes
+     *
+     * @param grid the board to play on
+     * @param piece the piece
+     * @param x column
+     * @param y row
+     * @param multiplier the multiplier
+     * @param mask reusable mask for clearing lines
+     * @return the points scored
+     */
+    private static int play(Grid grid, GamePiece piece, int x, int y, int multiplier, long[] mask) {
+        grid.playPiece(piece, x, y);
+        int lines = grid.findFullLines(mask);
+        if(lines == 0) return 0;
+        return GameEngine.scoreFor(lines, grid.clearCells(mask), multiplier);
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    @Override
+    public void close() {
+        if(workers != null) workers.shutdownNow();
+    }
+
+    /**
+     * A move considered by the search and the board it leaves
+     */
+    private static class Node {
+
+        /**
+         * The move
+         */
+        private final Placement placement;
+
+        /**
+         * The board after the move
+         */
+        private final Grid grid;
+
+        /**
+         * The points scored by the move
+         */
+        private final int gain;
+
+        /**
+         * The multiplier after the move
+         */
+        private final int multiplier;
+
+        /**
+         * The points scored plus the value of the board left
+         */
+        private final double value;
+
+        /**
+         * Create a new Node
+         *
+         * @param placement the move
+         * @param grid the board after the move
+         * @param gain the points scored
+         * @param multiplier the multiplier after the move
+         * @param value the points scored plus the value of the board left
+         */
+        private Node(Placement placement, Grid grid, int gain, int multiplier, double value) {
+            this.placement = placement;
+            this.grid = grid;
+            this.gain = gain;
+            this.multiplier = multiplier;
+            this.value = value;
+        }
+    }
+}
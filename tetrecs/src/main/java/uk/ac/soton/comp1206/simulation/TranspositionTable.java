@@ -0,0 +1,357 @@
+package uk.ac.soton.comp1206.simulation;
+
+import uk.ac.soton.comp1206.game.Placement;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, lock-free cache of searched positions, keyed by Zobrist hash, shared by every search thread.
+ *
+ * Each slot is two longs: the entry's data, and its key XORed with its data. A reader only accepts a slot when the
+ * two agree, so a slot half written by another thread just reads as a miss and no locking is needed. The data packs
+ * the value of the position, the best move found there, the depth it was searched to and the search it came from.
+ *
+ * When a new entry lands on an occupied slot, the Replacement policy decides which one to keep. Counters of hits,
+ * misses and evictions are kept so the table can be sized for the memory available.
+ *
+ * Entry data, from the top bit down: a valid flag, the packed best move (15 bits), the search generation (8 bits),
+ * the depth (8 bits) and the value as a float (32 bits).
+ *
+ * @author Jesse Hardy
+ */
+public class TranspositionTable {
+
+    /**
+     * How to choose between an existing entry and a new one for the same slot
+     */
+    public enum Replacement {
+        /**
+         * Always keep the new entry
+         */
+        ALWAYS,
+        /**
+         * Keep whichever entry was searched deeper, preferring the new one on a tie
+         */
+        DEPTH,
+        /**
+         * Always replace entries left by earlier searches, otherwise keep the deeper entry
+         */
+        AGE_THEN_DEPTH
+    }
+
+    /**
+     * Memory used by each entry, in bytes
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    /**
+     * Flag set in the data of every stored entry, so an empty slot never matches
+     */
+    private static final long VALID = 1L << 63;
+
+    /**
+     * Flag set in a packed move when there is a move
+     */
+    private static final int MOVE_PRESENT = 1 << 13;
+
+    /**
+     * Flag set in a packed move when it swaps pieces first
+     */
+    private static final int MOVE_SWAP = 1 << 12;
+
+    /**
+     * The slots, two longs each: key XOR data, then data
+     */
+    private final AtomicLongArray slots;
+
+    /**
+     * Mask to turn a key into a slot number
+     */
+    private final int mask;
+
+    /**
+     * How to choose which entry to keep
+     */
+    private final Replacement replacement;
+
+    /**
+     * The number of the current search, stored in entries for the AGE_THEN_DEPTH policy
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Lookups which found their entry
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Lookups which found nothing
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Entries stored
+     */
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * Entries for other positions overwritten by a store
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Stores dropped because the existing entry was worth more
+     */
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Create a new empty table
+     *
+     * @param entries the number of entries, rounded up to a power of two
+     * @param replacement how to choose which entry to keep when two collide
+     */
+    public TranspositionTable(int entries, Replacement replacement) {
+        int size = Integer.highestOneBit(Math.max(2, Math.min(entries, 1 << 29)) * 2 - 1);
+        this.slots = new AtomicLongArray(size * 2);
+        this.mask = size - 1;
+        this.replacement = replacement;
+    }
+
+    /**
+     * Create the largest table which fits in a memory budget
+     *
+     * @param megabytes the memory budget in megabytes
+     * @param replacement how to choose which entry to keep when two collide
+     * @return the new table
+     */
+    public static TranspositionTable withMemory(int megabytes, Replacement replacement) {
+        long entries = (long) megabytes * 1024 * 1024 / ENTRY_BYTES;
+        return new TranspositionTable(Integer.highestOneBit((int) Math.min(entries, 1 << 29)), replacement);
+    }
+
+    /**
+     * Mark the start of a new search, so the AGE_THEN_DEPTH policy can tell old entries from new ones
+     */
+    public void newSearch() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Look up a position
+     *
+     * @param key the Zobrist key of the position
+     * @return the entry's packed data, to read with valueOf, moveOf and depthOf, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        int slot = slotOf(key);
+        long data = slots.getAcquire(slot + 1);
+        long check = slots.getAcquire(slot);
+        if(data != 0 && (check ^ data) == key) {
+            hits.increment();
+            return data;
+        }
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * Store a position, subject to the replacement policy
+     *
+     * @param key the Zobrist key of the position
+     * @param value the value of the position
+     * @param move the best move found from the position, or null
+     * @param depth how deep the position was searched, from 0 to 255
+     */
+    public void store(long key, double value, Placement move, int depth) {
+        int slot = slotOf(key);
+        int currentGeneration = generation.get() & 0xFF;
+        long data = VALID
+                | (long) encodeMove(move) << 48
+                | (long) currentGeneration << 40
+                | (long) Math.min(255, Math.max(0, depth)) << 32
+                | Integer.toUnsignedLong(Float.floatToIntBits((float) value));
+
+        long oldData = slots.getAcquire(slot + 1);
+        long oldKey = slots.getAcquire(slot) ^ oldData;
+        if(oldData != 0 && oldKey != key) {
+            boolean replace = switch (replacement) {
+                case ALWAYS -> true;
+                case DEPTH -> depth >= depthOf(oldData);
+                case AGE_THEN_DEPTH -> generationOf(oldData) != currentGeneration || depth >= depthOf(oldData);
+            };
+            if(!replace) {
+                rejections.increment();
+                return;
+            }
+            evictions.increment();
+        }
+
+        //Another thread may write between these two, but then the key check fails and the slot reads as a miss
+        slots.setRelease(slot + 1, data);
+        slots.setRelease(slot, key ^ data);
+        stores.increment();
+    }
+
+    /**
+     * Get the slot index of a key
+     *
+     * @param key the key
+     * @return the index of the slot's first long
+     */
+    private int slotOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 1;
+    }
+
+    /**
+     * Get the value stored in an entry
+     *
+     * @param data the entry data from probe
+     * @return the value
+     */
+    public static double valueOf(long data) {
+        return Float.intBitsToFloat((int) data);
+    }
+
+    /**
+     * Get the best move stored in an entry
+     *
+     * @param data the entry data from probe
+     * @return the move, or null if none was stored
+     */
+    public static Placement moveOf(long data) {
+        int move = (int) (data >>> 48) & 0x7FFF;
+        if((move & MOVE_PRESENT) == 0) return null;
+        return new Placement(move & 0x1F, (move >>> 5) & 0x1F, (move >>> 10) & 0x3, (move & MOVE_SWAP) != 0);
+    }
+
+    /**
+     * Get the depth stored in an entry
+     *
+     * @param data the entry data from probe
+     * @return the depth
+     */
+    public static int depthOf(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    /**
+     * Get the generation stored in an entry
+     *
+     * @param data the entry data
+     * @return the generation
+     */
+    private static int generationOf(long data) {
+        return (int) (data >>> 40) & 0xFF;
+    }
+
+    /**
+     * Pack a move into 14 bits: x and y in 5 bits each, then the rotation, swap and present flags
+     *
+     * @param move the move, or null
+     * @return the packed move
+     */
+    private static int encodeMove(Placement move) {
+        if(move == null || move.getX() > 0x1F || move.getY() > 0x1F) return 0;
+        return MOVE_PRESENT | (move.isSwap() ? MOVE_SWAP : 0) | (move.getRotation() & 0x3) << 10
+                | move.getY() << 5 | move.getX();
+    }
+
+    /**
+     * Empty the table and reset its counters
+     */
+    public void clear() {
+        for(int i = 0; i < slots.length(); i++) slots.setRelease(i, 0);
+        hits.reset();
+        misses.reset();
+        stores.reset();
+        evictions.reset();
+        rejections.reset();
+    }
+
+    /**
+     * Get the number of entries the table holds
+     *
+     * @return number of entries
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Get the memory used by the table's entries
+     *
+     * @return size in bytes
+     */
+    public long getMemoryBytes() {
+        return (long) getCapacity() * ENTRY_BYTES;
+    }
+
+    /**
+     * Get the number of lookups which found their entry
+     *
+     * @return hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups which found nothing
+     *
+     * @return misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of entries stored
+     *
+     * @return stores
+     */
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * Get the number of entries for other positions overwritten by a store
+     *
+     * @return evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of stores dropped because the existing entry was worth more
+     *
+     * @return rejections
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Get the fraction of lookups which found their entry
+     *
+     * @return hit rate, from 0 to 1
+     */
+    public double getHitRate() {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Describe the size and counters of the table
+     */
+    @Override
+    public String toString() {
+        return String.format("%d entries (%d KB, %s): %d hits, %d misses (%.1f%% hit rate), %d stores, "
+                        + "%d evictions, %d rejections", getCapacity(), getMemoryBytes() / 1024, replacement,
+                getHits(), getMisses(), getHitRate() * 100, getStores(), getEvictions(), getRejections());
+    }
+}
@@ -4,7 +4,6 @@ import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,6 +11,7 @@ import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.Multimedia;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.network.ScoreCache;
 import uk.ac.soton.comp1206.scene.*;
 
 /**
@@ -38,6 +38,8 @@ public class GameWindow {
 
     final Communicator communicator;
 
+    final ScoreCache scoreCache;
+
     /**
      * Create a new GameWindow attached to the given stage with the specified width and height
      *
@@ -61,10 +63,14 @@ public class GameWindow {
         setupDefaultScene();
 
         //Setup communicator
-        communicator = new Communicator("ws://ofb-labs.soton.ac.uk:9700");
+        communicator = new Communicator(Communicator.serverAddress());
+        scoreCache = new ScoreCache(communicator, ScoreCache.ONLINE_FILE, ScoresScene.SCORES_SHOWN);
 
         //Go to menu
         startMenu();
+
+        //Connect in the background once the menu is up, so startup doesn't wait on the network
+        communicator.connect();
     }
 
     /**
@@ -73,10 +79,11 @@ public class GameWindow {
     private void setupResources() {
         logger.info("Loading resources");
 
+        //Load every image, font, sound and track in the background
+        Resources.preload();
+
         //We need to load fonts here due to the Font loader bug with spaces in URLs in the CSS files
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Regular.ttf"),32);
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-Bold.ttf"),32);
-        Font.loadFont(getClass().getResourceAsStream("/style/Orbitron-ExtraBold.ttf"),32);
+        Resources.awaitFonts();
     }
 
     /**
@@ -198,4 +205,13 @@ public class GameWindow {
     public Communicator getCommunicator() {
         return communicator;
     }
+
+    /**
+     * Get the cache of online scores
+     *
+     * @return score cache
+     */
+    public ScoreCache getScoreCache() {
+        return scoreCache;
+    }
 }
@@ -0,0 +1,253 @@
+package uk.ac.soton.comp1206.ui;
+
+import javafx.scene.image.Image;
+import javafx.scene.media.AudioClip;
+import javafx.scene.media.Media;
+import javafx.scene.text.Font;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads and caches every image, font, sound effect and music track the game uses.
+ *
+ * Everything is loaded from the classpath, so it works the same from the IDE and the packaged jar. Preloading starts
+ * every load at once on a small pool of background threads when the game starts, and logs how long each took. After
+ * that, getting a resource is just a lookup, so switching scenes never touches the disk. Anything asked for before its
+ * load has finished waits for just that load, and anything not in the preload lists is loaded the first time it is
+ * asked for.
+ *
+ * @author Jesse Hardy
+ */
+public class Resources {
+
+    /**
+     * Instance of the logger
+     */
+    private static final Logger logger = LogManager.getLogger(Resources.class);
+
+    /**
+     * The images in /images
+     */
+    private static final String[] IMAGES = {
+            "TetrECS.png", "Instructions.png", "ECSGames.png"
+    };
+
+    /**
+     * The fonts in /style
+     */
+    private static final String[] FONTS = {
+            "Orbitron-Regular.ttf", "Orbitron-Bold.ttf", "Orbitron-ExtraBold.ttf"
+    };
+
+    /**
+     * The sound effects in /sounds
+     */
+    private static final String[] SOUNDS = {
+            "clear.wav", "explode.wav", "fail.wav", "intro.mp3", "level.wav", "lifegain.wav", "lifelose.wav",
+            "message.wav", "place.wav", "pling.wav", "rotate.wav", "transition.wav"
+    };
+
+    /**
+     * The music tracks in /music
+     */
+    private static final String[] MUSIC = {
+            "menu.mp3", "menu2.mp3", "end.wav"
+    };
+
+    /**
+     * The threads resources are loaded on
+     */
+    private static final ExecutorService loaders = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), task -> {
+                var thread = new Thread(task, "ResourceLoader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Loaded or loading images, by file name
+     */
+    private static final Map<String, CompletableFuture<Image>> images = new ConcurrentHashMap<>();
+
+    /**
+     * Loaded or loading fonts, by file name
+     */
+    private static final Map<String, CompletableFuture<Font>> fonts = new ConcurrentHashMap<>();
+
+    /**
+     * Loaded or loading sound effects, by file name
+     */
+    private static final Map<String, CompletableFuture<AudioClip>> sounds = new ConcurrentHashMap<>();
+
+    /**
+     * Loaded or loading music, by file name
+     */
+    private static final Map<String, CompletableFuture<Media>> music = new ConcurrentHashMap<>();
+
+    private Resources() {
+    }
+
+    /**
+     * Start loading every resource in the background
+     *
+     * @return a future completed once everything has loaded
+     */
+    public static CompletableFuture<Void> preload() {
+        long start = System.nanoTime();
+        var loads = new ArrayList<CompletableFuture<?>>();
+        //Fonts go first, so the wait for them at startup never queues behind the images and sounds
+        for(var file : FONTS) loads.add(load(fonts, "/style/", file, Resources::readFont));
+        for(var file : IMAGES) loads.add(load(images, "/images/", file, Resources::readImage));
+        for(var file : SOUNDS) loads.add(load(sounds, "/sounds/", file, url -> new AudioClip(url.toExternalForm())));
+        for(var file : MUSIC) loads.add(load(music, "/music/", file, url -> new Media(url.toExternalForm())));
+
+        return CompletableFuture.allOf(loads.toArray(CompletableFuture<?>[]::new))
+                .handle((done, error) -> {
+                    logger.info("Preloaded {} resources in {}ms", loads.size(), (System.nanoTime() - start) / 1_000_000);
+                    return null;
+                });
+    }
+
+    /**
+     * Wait for the fonts to load, so they are ready before any styles use them. The fonts are the first loads preload
+     * starts, so this only waits on the fonts themselves.
+     */
+    public static void awaitFonts() {
+        for(var file : FONTS) get(fonts, "/style/", file, Resources::readFont);
+    }
+
+    /**
+     * Get an image from /images
+     *
+     * @param file the file name
+     * @return the image, or null if it could not be loaded
+     */
+    public static Image getImage(String file) {
+        return get(images, "/images/", file, Resources::readImage);
+    }
+
+    /**
+     * Get a sound effect from /sounds
+     *
+     * @param file the file name
+     * @return the clip, or null if it could not be loaded
+     */
+    public static AudioClip getSound(String file) {
+        return get(sounds, "/sounds/", file, url -> new AudioClip(url.toExternalForm()));
+    }
+
+    /**
+     * Get a music track from /music
+     *
+     * @param file the file name
+     * @return the track, or null if it could not be loaded
+     */
+    public static Media getMusic(String file) {
+        return get(music, "/music/", file, url -> new Media(url.toExternalForm()));
+    }
+
+    /**
+     * Get a resource from a cache, waiting for it if it is still loading and loading it if it was never started
+     *
+     * @param cache the cache of that kind of resource
+     * @param folder the folder the resource is in
+     * @param file the file name
+     * @param reader turns the resource's URL into the resource
+     * @param <T> the kind of resource
+     * @return the resource, or null if it could not be loaded
+     */
+    private static <T> T get(Map<String, CompletableFuture<T>> cache, String folder, String file,
+                             Reader<T> reader) {
+        try {
+            return load(cache, folder, file, reader).join();
+        } catch(RuntimeException e) {
+            //Already logged by the load
+            return null;
+        }
+    }
+
+    /**
+     * Start loading a resource in the background, unless it is already loading or loaded
+     *
+     * @param cache the cache of that kind of resource
+     * @param folder the folder the resource is in
+     * @param file the file name
+     * @param reader turns the resource's URL into the resource
+     * @param <T> the kind of resource
+     * @return the load
+     */
+    private static <T> CompletableFuture<T> load(Map<String, CompletableFuture<T>> cache, String folder, String file,
+                                                 Reader<T> reader) {
+        return cache.computeIfAbsent(file, key -> CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            URL url = Resources.class.getResource(folder + file);
+            if(url == null) {
+                logger.error("Missing resource {}{}", folder, file);
+                throw new IllegalStateException("Missing resource " + folder + file);
+            }
+            try {
+                T resource = reader.read(url);
+                logger.info("Loaded {}{} in {}ms", folder, file, (System.nanoTime() - start) / 1_000_000);
+                return resource;
+            } catch(Exception e) {
+                logger.error("Unable to load {}{}", folder, file, e);
+                throw new IllegalStateException("Unable to load " + folder + file, e);
+            }
+        }, loaders));
+    }
+
+    /**
+     * Read and decode an image
+     *
+     * @param url where the image is
+     * @return the image
+     * @throws IOException if it could not be read
+     */
+    private static Image readImage(URL url) throws IOException {
+        try(var stream = url.openStream()) {
+            var image = new Image(stream);
+            if(image.isError()) throw new IOException(image.getException());
+            return image;
+        }
+    }
+
+    /**
+     * Read and register a font
+     *
+     * @param url where the font is
+     * @return the font
+     * @throws IOException if it could not be read
+     */
+    private static Font readFont(URL url) throws IOException {
+        try(var stream = url.openStream()) {
+            var font = Font.loadFont(stream, 32);
+            if(font == null) throw new IOException("Not a font");
+            return font;
+        }
+    }
+
+    /**
+     * Turns the URL of a resource into the resource
+     *
+     * @param <T> the kind of resource
+     */
+    private interface Reader<T> {
+        /**
+         * Read the resource
+         *
+         * @param url where the resource is
+         * @return the resource
+         * @throws Exception if it could not be read
+         */
+        T read(URL url) throws Exception;
+    }
+}